@@ -0,0 +1,178 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when each upload to the remote may start, for every upload in the build at once. A token bucket caps how
+ * many uploads start per second, and on top of that the number of uploads in flight follows additive increase,
+ * multiplicative decrease: it starts at the maximum, halves whenever the remote throttles us or takes much longer than
+ * usual to answer, and grows back by about one upload per round of successful uploads. Optionally, the largest of the
+ * uploads waiting to start always goes next, so a big upload is not left to run on its own once everything else is
+ * done.
+ */
+final class AdaptiveUploadLimiter {
+    // How much longer than usual an upload has to take, per megabyte, before we treat it as the remote struggling
+    private static final double LATENCY_SPIKE_FACTOR = 4;
+    private static final int LATENCY_SAMPLES_BEFORE_DETECTING_SPIKES = 10;
+    private static final double LATENCY_SMOOTHING = 0.1;
+    private static final long BYTES_PER_LATENCY_UNIT = 1024 * 1024;
+
+    private final int maxConcurrency;
+    private final double uploadsPerSecond;
+    private final boolean largestFirst;
+    // The sizes of every upload waiting to start, largest first
+    private final PriorityQueue<Long> waiting = new PriorityQueue<>(Comparator.reverseOrder());
+
+    private double concurrencyLimit;
+    private int inFlight;
+    private double tokens;
+    private long tokensRefilledAtNanos = System.nanoTime();
+    private double usualLatencyNanos;
+    private int latencySamples;
+    private long decreasedAtNanos = System.nanoTime() - TimeUnit.DAYS.toNanos(1);
+
+    private int lowestConcurrencyLimit;
+    private int throttled;
+    private int latencySpikes;
+
+    /** A zero {@code uploadsPerSecond} means uploads can start as fast as the concurrency limit allows. */
+    AdaptiveUploadLimiter(int maxConcurrency, double uploadsPerSecond, boolean largestFirst) {
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.uploadsPerSecond = uploadsPerSecond;
+        this.largestFirst = largestFirst;
+        this.concurrencyLimit = this.maxConcurrency;
+        this.lowestConcurrencyLimit = this.maxConcurrency;
+        this.tokens = Math.max(1, uploadsPerSecond);
+    }
+
+    /**
+     * Blocks until another upload, of {@code bytes} bytes, may start. Every call must be followed by exactly one of the
+     * other methods.
+     */
+    synchronized void acquire(long bytes) throws InterruptedException {
+        waiting.add(bytes);
+        try {
+            while (true) {
+                refillTokens();
+                boolean underConcurrencyLimit = inFlight < (int) concurrencyLimit;
+                boolean next = !largestFirst || bytes >= waiting.peek();
+
+                if (underConcurrencyLimit && next && (uploadsPerSecond <= 0 || tokens >= 1)) {
+                    inFlight++;
+                    if (uploadsPerSecond > 0) {
+                        tokens--;
+                    }
+                    return;
+                }
+
+                if (underConcurrencyLimit && next) {
+                    TimeUnit.NANOSECONDS.timedWait(
+                            this, (long) ((1 - tokens) / uploadsPerSecond * 1_000_000_000L) + 1);
+                } else {
+                    wait();
+                }
+            }
+        } finally {
+            waiting.remove(bytes);
+            // The next largest upload may now be able to start
+            notifyAll();
+        }
+    }
+
+    /** The upload of {@code bytes} bytes succeeded, having taken {@code latencyNanos}. */
+    synchronized void succeeded(long bytes, long latencyNanos) {
+        inFlight--;
+        double normalizedLatency = latencyNanos / Math.max(1d, (double) bytes / BYTES_PER_LATENCY_UNIT);
+
+        if (latencySamples >= LATENCY_SAMPLES_BEFORE_DETECTING_SPIKES
+                && normalizedLatency > usualLatencyNanos * LATENCY_SPIKE_FACTOR) {
+            latencySpikes++;
+            decrease(latencyNanos);
+        } else {
+            // Spikes are left out, so a struggling remote does not become what we think of as usual
+            usualLatencyNanos = latencySamples == 0
+                    ? normalizedLatency
+                    : usualLatencyNanos + LATENCY_SMOOTHING * (normalizedLatency - usualLatencyNanos);
+            latencySamples++;
+            concurrencyLimit = Math.min(maxConcurrency, concurrencyLimit + 1 / concurrencyLimit);
+        }
+
+        notifyAll();
+    }
+
+    /**
+     * The remote pushed back on the upload, by throttling it or by dropping the connection, after {@code latencyNanos}.
+     */
+    synchronized void throttled(long latencyNanos) {
+        inFlight--;
+        throttled++;
+        decrease(latencyNanos);
+        notifyAll();
+    }
+
+    /** The upload failed for some other reason, which says nothing about how loaded the remote is. */
+    synchronized void failed() {
+        inFlight--;
+        notifyAll();
+    }
+
+    synchronized int concurrencyLimit() {
+        return (int) concurrencyLimit;
+    }
+
+    synchronized int lowestConcurrencyLimit() {
+        return lowestConcurrencyLimit;
+    }
+
+    synchronized int throttledUploads() {
+        return throttled;
+    }
+
+    synchronized int latencySpikes() {
+        return latencySpikes;
+    }
+
+    private void decrease(long latencyNanos) {
+        // Everything in flight when the remote pushed back is likely to see it too, so only back off once per round
+        // trip rather than once per upload
+        long now = System.nanoTime();
+        if (now - decreasedAtNanos < Math.max(usualLatencyNanos, latencyNanos)) {
+            return;
+        }
+
+        decreasedAtNanos = now;
+        concurrencyLimit = Math.max(1, concurrencyLimit / 2);
+        lowestConcurrencyLimit = Math.min(lowestConcurrencyLimit, (int) concurrencyLimit);
+    }
+
+    private void refillTokens() {
+        if (uploadsPerSecond <= 0) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        // Allow a burst of at most a second's worth of uploads
+        tokens = Math.min(
+                Math.max(1, uploadsPerSecond),
+                tokens + (now - tokensRefilledAtNanos) / 1_000_000_000d * uploadsPerSecond);
+        tokensRefilledAtNanos = now;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with "equal jitter": each delay is between half and all of the current exponential step, so
+ * concurrent pollers spread out while still backing off. Call {@link #reset()} whenever something changes to go back
+ * to polling quickly.
+ */
+final class Backoff {
+    private final Duration initial;
+    private final Duration max;
+    private Duration current;
+
+    Backoff(Duration initial, Duration max) {
+        this.initial = initial;
+        this.max = max;
+        this.current = initial;
+    }
+
+    Duration next() {
+        long step = current.toMillis();
+        current = current.multipliedBy(2).compareTo(max) > 0 ? max : current.multipliedBy(2);
+        return Duration.ofMillis(step / 2 + ThreadLocalRandom.current().nextLong(step / 2 + 1));
+    }
+
+    void reset() {
+        current = initial;
+    }
+
+    void sleep() throws InterruptedException {
+        Thread.sleep(next().toMillis());
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish;
+
+import groovy.json.JsonOutput;
+import groovy.json.JsonSlurper;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import org.gradle.api.GradleException;
+
+/**
+ * A minimal client for the <a href="https://central.sonatype.org/publish/publish-portal-api/">Central Publisher
+ * API</a>, which accepts a whole release as one zip bundle and validates it asynchronously.
+ */
+final class CentralPortalClient {
+    private final HttpClient httpClient;
+    private final URI baseUrl;
+    private final String authorization;
+
+    CentralPortalClient(URI baseUrl, String username, String password) {
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMinutes(1))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        this.baseUrl = baseUrl.toString().endsWith("/") ? baseUrl : URI.create(baseUrl + "/");
+        this.authorization = "Bearer "
+                + Base64.getEncoder().encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Uploads the bundle, streaming it from disk, and returns the id of the deployment that was created. */
+    String upload(Path bundle, String deploymentName) {
+        String boundary = "----external-publish-" + UUID.randomUUID();
+        String partHeader = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"bundle\"; filename=\"" + bundle.getFileName() + "\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n";
+        String partFooter = "\r\n--" + boundary + "--\r\n";
+
+        HttpRequest.BodyPublisher body;
+        try {
+            body = BodyPublishers.concat(
+                    BodyPublishers.ofString(partHeader),
+                    BodyPublishers.ofFile(bundle),
+                    BodyPublishers.ofString(partFooter));
+        } catch (IOException e) {
+            throw new GradleException("Could not read Central Portal bundle " + bundle, e);
+        }
+
+        HttpRequest request = HttpRequest.newBuilder(baseUrl.resolve("api/v1/publisher/upload?publishingType=AUTOMATIC"
+                        + "&name=" + URLEncoder.encode(deploymentName, StandardCharsets.UTF_8)))
+                .header("Authorization", authorization)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(body)
+                .build();
+
+        return send(request, "upload bundle").trim();
+    }
+
+    DeploymentStatus status(String deploymentId) {
+        HttpRequest request = HttpRequest.newBuilder(baseUrl.resolve(
+                        "api/v1/publisher/status?id=" + URLEncoder.encode(deploymentId, StandardCharsets.UTF_8)))
+                .header("Authorization", authorization)
+                .POST(BodyPublishers.noBody())
+                .build();
+
+        Map<?, ?> json = (Map<?, ?>) new JsonSlurper().parseText(send(request, "get deployment status"));
+        return new DeploymentStatus(
+                Objects.toString(json.get("deploymentState")),
+                json.get("errors") == null ? "" : JsonOutput.toJson(json.get("errors")));
+    }
+
+    private String send(HttpRequest request, String description) {
+        HttpResponse<String> response;
+        try {
+            response = httpClient.send(request, BodyHandlers.ofString());
+        } catch (IOException e) {
+            throw new GradleException("Failed to " + description + " at " + request.uri(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while trying to " + description, e);
+        }
+
+        if (response.statusCode() / 100 != 2) {
+            throw new GradleException("Failed to " + description + " at " + request.uri() + ": HTTP "
+                    + response.statusCode() + " " + response.body());
+        }
+
+        return response.body();
+    }
+
+    static final class DeploymentStatus {
+        private final String state;
+        private final String errors;
+
+        DeploymentStatus(String state, String errors) {
+            this.state = state;
+            this.errors = errors;
+        }
+
+        String state() {
+            return state;
+        }
+
+        String errors() {
+            return errors;
+        }
+
+        boolean isFailed() {
+            return state.equals("FAILED");
+        }
+
+        /** With automatic publishing, validation is over once the deployment starts publishing to Maven Central. */
+        boolean isValidated() {
+            return state.equals("VALIDATED") || state.equals("PUBLISHING") || state.equals("PUBLISHED");
+        }
+    }
+}
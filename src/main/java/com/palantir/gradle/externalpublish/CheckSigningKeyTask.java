@@ -18,12 +18,17 @@ package com.palantir.gradle.externalpublish;
 
 import org.gradle.api.DefaultTask;
 import org.gradle.api.GradleException;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.TaskAction;
 
 public abstract class CheckSigningKeyTask extends DefaultTask {
+    @Input
+    public abstract Property<Boolean> getSigningKeyPresent();
+
     @TaskAction
     public final void checkSigningKey() {
-        if (!GpgSigningKey.fromEnv(getProject()).isPresent()) {
+        if (!getSigningKeyPresent().get()) {
             throw new GradleException("The required environment variables to sign the release could not be found. "
                     + "Check the logs above to find out which ones are missing.");
         }
@@ -18,12 +18,17 @@ package com.palantir.gradle.externalpublish;
 
 import org.gradle.api.DefaultTask;
 import org.gradle.api.GradleException;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.TaskAction;
 
 public abstract class CheckVersionTask extends DefaultTask {
+    @Input
+    public abstract Property<String> getProjectVersion();
+
     @TaskAction
     public final void checkVersion() {
-        String version = getProject().getVersion().toString();
+        String version = getProjectVersion().get();
 
         if (version.endsWith("dirty")) {
             throw new GradleException("The version ends in dirty and so cannot be published. Please ensure that all "
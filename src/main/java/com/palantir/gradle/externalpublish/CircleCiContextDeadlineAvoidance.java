@@ -24,6 +24,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import org.gradle.api.Action;
 import org.gradle.api.Task;
+import org.gradle.api.logging.Logger;
 
 final class CircleCiContextDeadlineAvoidance {
     private static final ScheduledExecutorService CIRCLE_CI_OUTPUT_SPAMMER =
@@ -43,10 +44,12 @@ final class CircleCiContextDeadlineAvoidance {
 
         task.doFirst(new Action<Task>() {
             @Override
-            public void execute(Task _ignored) {
+            public void execute(Task runningTask) {
                 spammerTask.set(CIRCLE_CI_OUTPUT_SPAMMER.scheduleWithFixedDelay(
                         () -> {
-                            task.getLogger().lifecycle("Printing output to avoid hitting Circle context deadline");
+                            runningTask
+                                    .getLogger()
+                                    .lifecycle("Printing output to avoid hitting Circle context deadline");
                         },
                         duration.toMillis(),
                         duration.toMillis(),
@@ -62,5 +65,19 @@ final class CircleCiContextDeadlineAvoidance {
         });
     }
 
+    /** Runs {@code action} on the calling thread, for work that carries on after its task has finished. */
+    public static void printingEverySoOftenWhile(Logger logger, Runnable action) {
+        ScheduledFuture<?> spammer = CIRCLE_CI_OUTPUT_SPAMMER.scheduleWithFixedDelay(
+                () -> logger.lifecycle("Printing output to avoid hitting Circle context deadline"),
+                Duration.ofMinutes(5).toMillis(),
+                Duration.ofMinutes(5).toMillis(),
+                TimeUnit.MILLISECONDS);
+        try {
+            action.run();
+        } finally {
+            spammer.cancel(true);
+        }
+    }
+
     private CircleCiContextDeadlineAvoidance() {}
 }
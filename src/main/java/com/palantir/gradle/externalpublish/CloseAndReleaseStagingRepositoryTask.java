@@ -0,0 +1,132 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish;
+
+import com.palantir.gradle.externalpublish.PublishingMetrics.Kind;
+import java.net.URI;
+import javax.inject.Inject;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+import org.gradle.workers.WorkerExecutor;
+
+/**
+ * Closes the staging repository then releases it to Maven Central, like the Nexus plugin's
+ * {@code closeAndReleaseSonatypeStagingRepository}, but in the background. Closing alone can take 20 minutes, and
+ * nothing else needs to wait for it, so Gradle carries on with other remote operations, like publishing to the Gradle
+ * Plugin Portal or the JetBrains Marketplace, at the same time, even without {@code --parallel}.
+ */
+public abstract class CloseAndReleaseStagingRepositoryTask extends DefaultTask {
+    @Internal
+    public abstract Property<String> getStagingRepositoryId();
+
+    @Internal
+    public abstract Property<String> getRepositoryDescription();
+
+    @Internal
+    public abstract Property<URI> getNexusUrl();
+
+    @Internal
+    public abstract Property<String> getUsername();
+
+    @Internal
+    public abstract Property<String> getPassword();
+
+    @Internal
+    public abstract Property<PublishingMetrics> getPublishingMetrics();
+
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
+    @TaskAction
+    public final void closeAndRelease() {
+        getWorkerExecutor().noIsolation().submit(CloseAndRelease.class, parameters -> {
+            parameters.getTaskPath().set(getPath());
+            parameters.getStagingRepositoryId().set(getStagingRepositoryId());
+            parameters.getRepositoryDescription().set(getRepositoryDescription());
+            parameters.getNexusUrl().set(getNexusUrl());
+            parameters.getUsername().set(getUsername());
+            parameters.getPassword().set(getPassword());
+            parameters.getPublishingMetrics().set(getPublishingMetrics());
+        });
+    }
+
+    public interface CloseAndReleaseParameters extends WorkParameters {
+        Property<String> getTaskPath();
+
+        Property<String> getStagingRepositoryId();
+
+        Property<String> getRepositoryDescription();
+
+        Property<URI> getNexusUrl();
+
+        Property<String> getUsername();
+
+        Property<String> getPassword();
+
+        Property<PublishingMetrics> getPublishingMetrics();
+    }
+
+    public abstract static class CloseAndRelease implements WorkAction<CloseAndReleaseParameters> {
+        private static final Logger log = Logging.getLogger(CloseAndReleaseStagingRepositoryTask.class);
+
+        @Override
+        public final void execute() {
+            CloseAndReleaseParameters parameters = getParameters();
+            String taskPath = parameters.getTaskPath().get();
+            String repositoryId = parameters.getStagingRepositoryId().get();
+            String description = parameters.getRepositoryDescription().get();
+            NexusStagingClient client = new NexusStagingClient(
+                    parameters.getNexusUrl().get(),
+                    parameters.getUsername().get(),
+                    parameters.getPassword().get());
+
+            // Measured here rather than around the task, as the task is done as soon as it has handed over the work
+            PublishingMetrics metrics = parameters.getPublishingMetrics().get();
+            metrics.started(taskPath, Kind.STAGING, null, "sonatype", 0, 0);
+
+            CircleCiContextDeadlineAvoidance.printingEverySoOftenWhile(
+                    log, () -> closeAndRelease(client, repositoryId, description, metrics, taskPath));
+
+            metrics.finished(taskPath);
+            log.lifecycle("Released staging repository {}", repositoryId);
+        }
+
+        private static void closeAndRelease(
+                NexusStagingClient client,
+                String repositoryId,
+                String description,
+                PublishingMetrics metrics,
+                String taskPath) {
+            int failedPolls = 0;
+            try {
+                log.lifecycle("Closing staging repository {} in the background", repositoryId);
+                failedPolls += StagingRepositoryWatcher.transition(client, repositoryId, description, "closed", log);
+
+                log.lifecycle("Releasing staging repository {} in the background", repositoryId);
+                failedPolls += StagingRepositoryWatcher.transition(client, repositoryId, description, "released", log);
+            } finally {
+                metrics.requests(taskPath, client.requests(), failedPolls);
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish;
+
+import io.github.gradlenexus.publishplugin.NexusRepository;
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * Opens the staging repository in the background at the start of a tag build, so the round trip to Sonatype overlaps
+ * with compiling and packaging rather than holding up the first upload. If the build ends before any upload to the
+ * staging repository started, say because compiling failed, the staging repository is dropped again. Once something
+ * has been uploaded, it is kept, so the next attempt at the build can carry on in it.
+ */
+public abstract class EarlyStagingRepository implements BuildService<EarlyStagingRepository.Params>, AutoCloseable {
+    private static final Logger log = Logging.getLogger(EarlyStagingRepository.class);
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "early-staging-repository");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private CompletableFuture<String> repositoryId;
+    private boolean uploadStarted;
+
+    public interface Params extends BuildServiceParameters {
+        Property<URI> getNexusUrl();
+
+        Property<String> getUsername();
+
+        Property<String> getPassword();
+
+        /** Looked up from the package group when not set, like the Nexus plugin does. */
+        Property<String> getStagingProfileId();
+
+        Property<String> getPackageGroup();
+
+        Property<String> getDescription();
+    }
+
+    static Provider<EarlyStagingRepository> registerIfAbsent(
+            Project rootProject,
+            NexusRepository sonatypeRepository,
+            Provider<String> packageGroup,
+            Provider<String> description) {
+        return rootProject
+                .getGradle()
+                .getSharedServices()
+                .registerIfAbsent("externalPublishEarlyStagingRepository", EarlyStagingRepository.class, spec -> {
+                    spec.getParameters().getNexusUrl().set(sonatypeRepository.getNexusUrl());
+                    spec.getParameters().getUsername().set(sonatypeRepository.getUsername());
+                    spec.getParameters().getPassword().set(sonatypeRepository.getPassword());
+                    spec.getParameters().getStagingProfileId().set(sonatypeRepository.getStagingProfileId());
+                    spec.getParameters().getPackageGroup().set(packageGroup);
+                    spec.getParameters().getDescription().set(description);
+                });
+    }
+
+    /** Starts opening the staging repository, without waiting for Sonatype to answer. */
+    final synchronized void start() {
+        if (repositoryId != null) {
+            return;
+        }
+
+        log.lifecycle("Opening staging repository '{}' in the background", description());
+        repositoryId = CompletableFuture.supplyAsync(
+                () -> {
+                    NexusStagingClient client = client();
+                    String stagingProfileId = getParameters().getStagingProfileId().isPresent()
+                            ? getParameters().getStagingProfileId().get()
+                            : client.stagingProfileId(getParameters().getPackageGroup().get());
+                    return client.start(stagingProfileId, description());
+                },
+                executor);
+    }
+
+    /** Waits for the staging repository to have been opened, returning its id. */
+    final String awaitOpened() {
+        CompletableFuture<String> opening;
+        synchronized (this) {
+            if (repositoryId == null) {
+                throw new GradleException("The staging repository was never started");
+            }
+            opening = repositoryId;
+        }
+
+        try {
+            String openedId = opening.join();
+            log.lifecycle("Opened staging repository {}", openedId);
+            return openedId;
+        } catch (CompletionException e) {
+            throw new GradleException("Failed to open staging repository '" + description() + "'", e.getCause());
+        }
+    }
+
+    /** Something is about to be uploaded, to whichever staging repository this build uses. */
+    final synchronized void uploadStarting() {
+        uploadStarted = true;
+    }
+
+    @Override
+    public final void close() {
+        CompletableFuture<String> opening;
+        synchronized (this) {
+            opening = uploadStarted ? null : repositoryId;
+        }
+
+        try {
+            if (opening == null) {
+                return;
+            }
+
+            String unusedId = opening.join();
+            client().drop(unusedId, "Nothing was uploaded to this staging repository");
+            log.lifecycle("Dropped staging repository {}, as nothing was uploaded to it", unusedId);
+        } catch (RuntimeException e) {
+            log.warn("Failed to drop the staging repository opened for '{}'", description(), e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private NexusStagingClient client() {
+        return new NexusStagingClient(
+                getParameters().getNexusUrl().get(),
+                getParameters().getUsername().get(),
+                getParameters().getPassword().get());
+    }
+
+    private String description() {
+        return getParameters().getDescription().get();
+    }
+}
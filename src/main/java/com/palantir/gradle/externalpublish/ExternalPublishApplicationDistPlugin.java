@@ -16,8 +16,13 @@
 
 package com.palantir.gradle.externalpublish;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import org.gradle.api.Action;
+import org.gradle.api.GradleException;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.Task;
@@ -38,16 +43,47 @@ public class ExternalPublishApplicationDistPlugin implements Plugin<Project> {
     private static void configureApplicationDist(Project project) {
         project.getPluginManager().apply("application");
 
-        project.getTasks()
-                .withType(Tar.class)
-                .named("distTar")
-                .configure(distTar -> distTar.setCompression(Compression.GZIP));
+        project.getTasks().withType(Tar.class).named("distTar").configure(distTar -> {
+            boolean parallelCompression = project.getRootProject()
+                    .getExtensions()
+                    .getByType(ExternalPublishRootExtension.class)
+                    .getParallelDistCompression()
+                    .get();
+
+            if (!parallelCompression) {
+                distTar.setCompression(Compression.GZIP);
+                return;
+            }
+
+            // Gradle writes the uncompressed tar, then we gzip it in place. Fixing timestamps and file order makes
+            // the tar itself reproducible, which the compressed output then is too.
+            distTar.setCompression(Compression.NONE);
+            distTar.getArchiveExtension().set("tgz");
+            distTar.setPreserveFileTimestamps(false);
+            distTar.setReproducibleFileOrder(true);
+            distTar.doLast(new CompressInParallel());
+        });
 
         project.getTasks().withType(CreateStartScripts.class).configureEach(createStartScripts -> {
             createStartScripts.doLast(new FixWindowsStartScripts());
         });
     }
 
+    private static final class CompressInParallel implements Action<Task> {
+        @Override
+        public void execute(Task task) {
+            Path archive = ((Tar) task).getArchiveFile().get().getAsFile().toPath();
+            Path compressed = archive.resolveSibling(archive.getFileName() + ".gz.tmp");
+
+            try {
+                ParallelGzip.compress(archive, compressed, Runtime.getRuntime().availableProcessors());
+                Files.move(compressed, archive, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                throw new GradleException("Failed to compress " + archive, e);
+            }
+        }
+    }
+
     /**
      * Windows has a very short length limit on commands, and lines in a batch file are commands. So instead of listing
      * the whole classpath explicitly, which can overflow this tiny limit, we just refer to the lib directory as the
@@ -16,9 +16,20 @@
 
 package com.palantir.gradle.externalpublish;
 
+import com.palantir.gradle.externalpublish.PublishingMetrics.Kind;
+import com.palantir.gradle.externalpublish.SigningKeyService.SharedSignatory;
+import java.io.File;
+import java.net.URI;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import nebula.plugin.info.scm.ScmInfoPlugin;
 import nebula.plugin.publishing.maven.MavenBasePublishPlugin;
@@ -28,25 +39,44 @@ import org.gradle.api.Action;
 import org.gradle.api.GradleException;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
-import org.gradle.api.publish.Publication;
+import org.gradle.api.Task;
+import org.gradle.api.artifacts.repositories.MavenArtifactRepository;
+import org.gradle.api.file.Directory;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.publish.PublishingExtension;
+import org.gradle.api.publish.internal.PublicationArtifactSet;
+import org.gradle.api.publish.internal.PublicationInternal.DerivedArtifact;
+import org.gradle.api.publish.maven.MavenArtifact;
 import org.gradle.api.publish.maven.MavenPublication;
+import org.gradle.api.publish.maven.internal.artifact.DerivedMavenArtifact;
+import org.gradle.api.publish.maven.internal.publication.MavenPublicationInternal;
 import org.gradle.api.publish.maven.plugins.MavenPublishPlugin;
 import org.gradle.api.publish.maven.tasks.AbstractPublishToMaven;
+import org.gradle.api.publish.maven.tasks.GenerateMavenPom;
 import org.gradle.api.publish.maven.tasks.PublishToMavenLocal;
 import org.gradle.api.publish.maven.tasks.PublishToMavenRepository;
 import org.gradle.api.publish.tasks.GenerateModuleMetadata;
+import org.gradle.api.tasks.Delete;
 import org.gradle.api.tasks.TaskCollection;
+import org.gradle.api.tasks.TaskProvider;
+import org.gradle.api.tasks.compile.AbstractCompile;
 import org.gradle.language.base.plugins.LifecycleBasePlugin;
 import org.gradle.plugins.signing.Sign;
 import org.gradle.plugins.signing.SigningExtension;
 import org.gradle.plugins.signing.SigningPlugin;
+import org.gradle.plugins.signing.type.pgp.ArmoredSignatureType;
+import org.gradle.util.GradleVersion;
 
 final class ExternalPublishBasePlugin implements Plugin<Project> {
+    private static final String BUILD_LOCAL_REPOSITORY_NAME = "buildLocal";
+    private static final String SONATYPE_UPLOAD_REPOSITORY_NAME = "sonatypeUpload";
+    // Publishing signatures lazily relies on Gradle internals, so newer Gradles use the signing plugin until tested
+    private static final GradleVersion FIRST_UNTESTED_GRADLE_FOR_LAZY_SIGNING = GradleVersion.version("9.0");
 
     private final Set<String> sonatypePublicationNames = new HashSet<>();
 
     private Project project;
+    private ExternalPublishRootPlugin rootPlugin;
 
     @Override
     public void apply(Project projectVal) {
@@ -54,7 +84,15 @@ final class ExternalPublishBasePlugin implements Plugin<Project> {
 
         applyPublishingPlugins();
         linkWithRootProject();
+        addRepositoriesForFeaturesInUse();
+        compileWhileStartingStagingRepository();
+        keepEarlyStagingRepositoryOnceUploading();
         disableOtherPublicationsFromPublishingToSonatype();
+        skipPublicationsAlreadyUploadedToSonatype();
+        publishToSimulatedRemoteOnDryRuns();
+        limitConcurrentPublishesToSonatype();
+        uploadOwnShareBeforeWaitingForOtherNodes();
+        measurePublishing();
         disableModuleMetadata();
         publishToMavenLocalAsPartOfBuild();
         addSignPublishDependency();
@@ -85,7 +123,7 @@ final class ExternalPublishBasePlugin implements Plugin<Project> {
             project.getPluginManager().apply(ExternalPublishRootPlugin.class);
         }
 
-        ExternalPublishRootPlugin rootPlugin = Optional.ofNullable(
+        rootPlugin = Optional.ofNullable(
                         project.getRootProject().getPlugins().findPlugin(ExternalPublishRootPlugin.class))
                 .orElseThrow(() -> new GradleException(
                         "The com.palantir.external-publish plugin must be applied to the root project "
@@ -98,21 +136,389 @@ final class ExternalPublishBasePlugin implements Plugin<Project> {
         });
     }
 
+    /**
+     * Every repository adds a publish task for every publication, so the repositories of opt-in features, and the
+     * tasks that go with them, are only added once the root project's extension says they are turned on.
+     */
+    private void addRepositoriesForFeaturesInUse() {
+        Action<Project> addRepositories = _ignored -> {
+            ExternalPublishRootExtension extension = rootPlugin.extension();
+            if (extension.getCentralPortalBundle().get()) {
+                addCentralBundleRepository();
+            }
+            if (extension.getBuildLocalRepository().get()) {
+                addBuildLocalRepository();
+            }
+            if (extension.getPooledSonatypeUploads().get()) {
+                addPooledSonatypeUploads();
+            }
+        };
+
+        if (project.getState().getExecuted()) {
+            addRepositories.execute(project);
+        } else {
+            project.afterEvaluate(addRepositories);
+        }
+    }
+
+    private void addCentralBundleRepository() {
+        project.getExtensions().getByType(PublishingExtension.class).repositories(repositories -> {
+            repositories.maven(repo -> {
+                repo.setName(ExternalPublishRootPlugin.CENTRAL_BUNDLE_REPOSITORY_NAME);
+                repo.setUrl(rootPlugin.centralBundleRepositoryDir());
+            });
+        });
+
+        TaskCollection<PublishToMavenRepository> publishToCentralBundles = project.getTasks()
+                .withType(PublishToMavenRepository.class)
+                .matching(publishTask -> publishTask
+                        .getRepository()
+                        .getName()
+                        .equals(ExternalPublishRootPlugin.CENTRAL_BUNDLE_REPOSITORY_NAME));
+
+        publishToCentralBundles.configureEach(publishTask -> {
+            publishTask.dependsOn(rootPlugin.cleanCentralBundleRepository());
+        });
+
+        rootPlugin.bundleCentralPublications().configure(bundle -> bundle.dependsOn(publishToCentralBundles));
+    }
+
+    private void addBuildLocalRepository() {
+        Provider<Directory> repositoryDir =
+                project.getLayout().getBuildDirectory().dir("external-publish/build-local-repository");
+
+        project.getExtensions().getByType(PublishingExtension.class).repositories(repositories -> {
+            repositories.maven(repo -> {
+                repo.setName(BUILD_LOCAL_REPOSITORY_NAME);
+                repo.setUrl(repositoryDir);
+            });
+        });
+
+        // Gradle already tracks the files of the publication as inputs, so declaring where each publication ends up
+        // is all it takes for these tasks to be up-to-date when nothing has changed
+        buildLocalPublishTasks().configureEach(publishTask -> {
+            publishTask.getOutputs().dir(repositoryDir.map(dir -> {
+                MavenPublication publication = publishTask.getPublication();
+                return dir.dir(publication.getGroupId().replace('.', '/') + "/" + publication.getArtifactId());
+            }));
+        });
+    }
+
+    private TaskCollection<PublishToMavenRepository> buildLocalPublishTasks() {
+        return project.getTasks()
+                .withType(PublishToMavenRepository.class)
+                .matching(publishTask -> publishTask.getRepository().getName().equals(BUILD_LOCAL_REPOSITORY_NAME));
+    }
+
+    private void addPooledSonatypeUploads() {
+        Provider<Directory> repositoryDir =
+                project.getLayout().getBuildDirectory().dir("external-publish/sonatype-upload-repository");
+
+        project.getExtensions().getByType(PublishingExtension.class).repositories(repositories -> {
+            repositories.maven(repo -> {
+                repo.setName(SONATYPE_UPLOAD_REPOSITORY_NAME);
+                repo.setUrl(repositoryDir);
+            });
+        });
+
+        TaskProvider<Delete> cleanSonatypeUploadRepository = project.getTasks()
+                .register("cleanSonatypeUploadRepository", Delete.class, clean -> {
+                    clean.delete(repositoryDir);
+                });
+
+        TaskCollection<PublishToMavenRepository> publishToSonatypeUploads = project.getTasks()
+                .withType(PublishToMavenRepository.class)
+                .matching(publishTask -> publishTask.getRepository().getName().equals(SONATYPE_UPLOAD_REPOSITORY_NAME));
+
+        publishToSonatypeUploads.configureEach(publishTask -> {
+            publishTask.dependsOn(cleanSonatypeUploadRepository);
+        });
+
+        Provider<Boolean> isReleasing = rootPlugin.releasing();
+        Provider<Boolean> centralPortalBundle = rootPlugin.extension().getCentralPortalBundle();
+        Provider<Boolean> pooledSonatypeUploads = rootPlugin.extension().getPooledSonatypeUploads();
+        Provider<SonatypeUploadService> uploadService = rootPlugin.sonatypeUploadService();
+        Provider<PreviousAttempts> previousAttempts = rootPlugin.previousAttempts();
+        Provider<Boolean> singlePass = rootPlugin.singlePassUploads();
+
+        TaskProvider<UploadToSonatypeTask> uploadToSonatype = project.getTasks()
+                .register("uploadToSonatype", UploadToSonatypeTask.class, upload -> {
+                    upload.setDescription("Uploads this project's publications to the Sonatype staging repository.");
+                    upload.onlyIf(_ignored -> pooledSonatypeUploads.get() && isReleasing.get()
+                            && !centralPortalBundle.get());
+                    upload.dependsOn(
+                            publishToSonatypeUploads,
+                            project.getRootProject().getTasks().named("initializeSonatypeStagingRepository"),
+                            rootPlugin.startSimulatedRemote());
+                    upload.getRepository().set(repositoryDir);
+                    upload.getStagingRepositoryId().set(rootPlugin.stagingRepositoryId());
+                    upload.getUploadMetadataLast().set(rootPlugin.sharingStagingRepository());
+                    upload.getSinglePass().set(singlePass);
+                    upload.getSinglePassArtifacts()
+                            .set(project.provider(() -> singlePass.get() ? publishedArtifactsOnThisNode() : Map.of()));
+                    // Through the publications, so whatever builds the artifacts runs first
+                    upload.getSinglePassArtifactFiles()
+                            .from((Callable<List<Object>>) () -> singlePass.get() ? publicationFiles() : List.of());
+                    GpgSigningKey.fromEnv(project).ifPresent(gpgSigningKey -> {
+                        Provider<SigningKeyService> signingKeyService =
+                                SigningKeyService.registerIfAbsent(project, gpgSigningKey);
+                        upload.usesService(signingKeyService);
+                        upload.getSigningKeyService().set(signingKeyService);
+                    });
+                    upload.usesService(uploadService);
+                    upload.getUploadService().set(uploadService);
+                    upload.getPublishingMetrics().set(rootPlugin.publishingMetrics());
+                    PublishingMetrics.measure(upload, rootPlugin.publishingMetrics(), Kind.PUBLISH, null, "sonatype");
+
+                    // Same as for the publish tasks, carry on from where a previous attempt of this tag build stopped
+                    Provider<Map<String, File>> publishedArtifacts =
+                            project.provider(this::publishedArtifactsOnThisNode);
+                    boolean signed = GpgSigningKey.fromEnv(project).isPresent();
+                    upload.usesService(previousAttempts);
+                    upload.onlyIf(
+                            "it was not already uploaded by a previous attempt",
+                            _ignored -> !previousAttempts.get().isUploaded(publishedArtifacts.get(), signed));
+                });
+
+        project.getTasks().named("publish").configure(publish -> publish.dependsOn(uploadToSonatype));
+        rootPlugin.closeStagingRepository().configure(close -> close.mustRunAfter(uploadToSonatype));
+        rootPlugin.awaitOtherNodes().configure(await -> await.mustRunAfter(uploadToSonatype));
+    }
+
+    /** The artifacts of this node's publications to Sonatype, by their path in the repository, without signatures. */
+    private Map<String, File> publishedArtifactsOnThisNode() {
+        Map<String, File> artifacts = new LinkedHashMap<>();
+        for (MavenPublicationInternal publication : publicationsOnThisNode()) {
+            artifacts.putAll(publishedArtifacts(publication));
+        }
+        return artifacts;
+    }
+
+    /** The artifacts of the publication, by where they end up in the repository, without signatures. */
+    private static Map<String, File> publishedArtifacts(MavenPublicationInternal publication) {
+        Map<String, File> artifacts = new LinkedHashMap<>();
+        for (MavenArtifact artifact : publication.getPublishableArtifacts()) {
+            if (!(artifact instanceof DerivedMavenArtifact)) {
+                artifacts.put(publishedPath(publication, artifact), artifact.getFile());
+            }
+        }
+        return artifacts;
+    }
+
+    private List<Object> publicationFiles() {
+        return publicationsOnThisNode().stream()
+                .map(publication -> publication.getPublishableArtifacts().getFiles())
+                .collect(Collectors.toList());
+    }
+
+    private List<MavenPublicationInternal> publicationsOnThisNode() {
+        PublishingExtension publishing = project.getExtensions().getByType(PublishingExtension.class);
+        return sonatypePublicationNames.stream()
+                .filter(publicationName -> publishedByThisNode(publicationName).get())
+                .map(publicationName ->
+                        (MavenPublicationInternal) publishing.getPublications().getByName(publicationName))
+                .collect(Collectors.toList());
+    }
+
+    private void compileWhileStartingStagingRepository() {
+        // Starting is instant, but Gradle would otherwise only get round to it right before the first upload
+        project.getTasks()
+                .withType(AbstractCompile.class)
+                .configureEach(compile -> compile.shouldRunAfter(rootPlugin.startStagingRepositoryEarly()));
+    }
+
+    private void keepEarlyStagingRepositoryOnceUploading() {
+        Provider<EarlyStagingRepository> earlyStagingRepository = rootPlugin.earlyStagingRepository();
+        Action<Task> uploadStarting = new Action<Task>() {
+            @Override
+            public void execute(Task _ignored) {
+                earlyStagingRepository.get().uploadStarting();
+            }
+        };
+
+        project.getTasks()
+                .withType(PublishToMavenRepository.class)
+                .matching(publishTask -> publishTask.getRepository().getName().equals("sonatype"))
+                .configureEach(publishTask -> {
+                    publishTask.usesService(earlyStagingRepository);
+                    publishTask.doFirst(uploadStarting);
+                });
+        project.getTasks().withType(UploadToSonatypeTask.class).configureEach(upload -> {
+            upload.usesService(earlyStagingRepository);
+            upload.doFirst(uploadStarting);
+        });
+    }
+
     private void disableOtherPublicationsFromPublishingToSonatype() {
+        Provider<Boolean> isReleasing = rootPlugin.releasing();
+        Provider<Boolean> centralPortalBundle = rootPlugin.extension().getCentralPortalBundle();
+        Provider<Boolean> buildLocalRepository = rootPlugin.extension().getBuildLocalRepository();
+        Provider<Boolean> pooledSonatypeUploads = rootPlugin.extension().getPooledSonatypeUploads();
+        Provider<Boolean> singlePass = rootPlugin.singlePassUploads();
+
         project.getTasks().withType(PublishToMavenRepository.class).configureEach(publishTask -> {
-            publishTask.onlyIf(_ignored -> {
-                if (publishTask.getRepository().getName().equals("sonatype")) {
-                    boolean isSonatypePublish = sonatypePublicationNames.contains(
-                            publishTask.getPublication().getName());
+            // Work out everything from the publication while configuring, so the spec below only captures
+            // providers and can be stored in the configuration cache
+            Provider<Boolean> shouldPublish = project.provider(() -> {
+                String repositoryName = publishTask.getRepository().getName();
+
+                if (repositoryName.equals("sonatype")
+                        || repositoryName.equals(ExternalPublishRootPlugin.CENTRAL_BUNDLE_REPOSITORY_NAME)
+                        || repositoryName.equals(SONATYPE_UPLOAD_REPOSITORY_NAME)) {
+                    String publicationName = publishTask.getPublication().getName();
+                    boolean isSonatypePublish = sonatypePublicationNames.contains(publicationName)
+                            && publishedByThisNode(publicationName).get();
+                    String repositoryInUse = centralPortalBundle.get()
+                            ? ExternalPublishRootPlugin.CENTRAL_BUNDLE_REPOSITORY_NAME
+                            : pooledSonatypeUploads.get() ? SONATYPE_UPLOAD_REPOSITORY_NAME : "sonatype";
+
+                    // uploadToSonatype uploads straight from the publications instead
+                    return isSonatypePublish
+                            && repositoryName.equals(repositoryInUse)
+                            && isReleasing.get()
+                            && !singlePass.get();
+                }
 
-                    return isSonatypePublish && OurEnvironmentVariables.isTagBuild(project);
+                if (repositoryName.equals(BUILD_LOCAL_REPOSITORY_NAME)) {
+                    return buildLocalRepository.get();
                 }
 
                 return true;
             });
+
+            publishTask.onlyIf(_ignored -> shouldPublish.get());
+        });
+    }
+
+    private void measurePublishing() {
+        project.getTasks()
+                .withType(PublishToMavenRepository.class)
+                .matching(publishTask -> sonatypePublicationNames.contains(
+                        publishTask.getPublication().getName()))
+                .configureEach(publishTask -> measure(
+                        publishTask,
+                        Kind.PUBLISH,
+                        publishTask.getPublication().getName(),
+                        publishTask.getRepository().getName()));
+    }
+
+    /** Reports how long {@code task} took, and how much it handled, in the build's publishing metrics. */
+    void measure(Task task, Kind kind, String publicationName, String repository) {
+        PublishingMetrics.measure(
+                task, rootPlugin.publishingMetrics(), kind, publicationPath(publicationName), repository);
+    }
+
+    /** Identifies one of this project's publications across the whole build. */
+    String publicationPath(String publicationName) {
+        return (project == project.getRootProject() ? ":" : project.getPath() + ":") + publicationName;
+    }
+
+    /** Whether this node signs and publishes the publication, rather than another parallel CircleCI node. */
+    private Provider<Boolean> publishedByThisNode(String publicationName) {
+        return rootPlugin.publicationShards().isPublishedByThisNode(publicationPath(publicationName));
+    }
+
+    private void skipPublicationsAlreadyUploadedToSonatype() {
+        Provider<PreviousAttempts> previousAttempts = rootPlugin.previousAttempts();
+
+        project.getTasks()
+                .withType(PublishToMavenRepository.class)
+                .matching(publishTask -> publishTask.getRepository().getName().equals("sonatype"))
+                .configureEach(publishTask -> {
+                    Provider<Map<String, File>> publishedArtifacts = project.provider(
+                            () -> publishedArtifacts((MavenPublicationInternal) publishTask.getPublication()));
+                    boolean signed = GpgSigningKey.fromEnv(project).isPresent();
+                    publishTask.usesService(previousAttempts);
+                    publishTask.onlyIf(
+                            "it was not already uploaded by a previous attempt",
+                            _ignored -> !previousAttempts.get().isUploaded(publishedArtifacts.get(), signed));
+                });
+    }
+
+    private void publishToSimulatedRemoteOnDryRuns() {
+        Provider<Boolean> dryRun = dryRun();
+
+        // The Nexus plugin only adds the sonatype repository once the project has been evaluated, by which point
+        // whether this is a dry run is known
+        project.getExtensions()
+                .getByType(PublishingExtension.class)
+                .getRepositories()
+                .withType(MavenArtifactRepository.class)
+                .matching(repository -> repository.getName().equals("sonatype"))
+                .configureEach(repository -> repository.setAllowInsecureProtocol(dryRun.get()));
+
+        project.getTasks()
+                .withType(PublishToMavenRepository.class)
+                .matching(publishTask -> publishTask.getRepository().getName().equals("sonatype"))
+                .configureEach(publishTask -> publishTask.dependsOn(rootPlugin.startSimulatedRemote()));
+    }
+
+    private void limitConcurrentPublishesToSonatype() {
+        // Gradle only runs as many of these at once as the upload service allows, so with --parallel they do not all
+        // hit Sonatype at the same time
+        Provider<SonatypeUploadService> uploadService = rootPlugin.sonatypeUploadService();
+
+        project.getTasks()
+                .withType(PublishToMavenRepository.class)
+                .matching(publishTask -> publishTask.getRepository().getName().equals("sonatype"))
+                .configureEach(publishTask -> publishTask.usesService(uploadService));
+    }
+
+    private void uploadOwnShareBeforeWaitingForOtherNodes() {
+        // So the lead node uploads its own share at the same time as the other nodes, rather than after them
+        TaskCollection<PublishToMavenRepository> publishToSonatype = project.getTasks()
+                .withType(PublishToMavenRepository.class)
+                .matching(publishTask -> publishTask.getRepository().getName().equals("sonatype"));
+
+        rootPlugin.awaitOtherNodes().configure(await -> {
+            await.mustRunAfter(publishToSonatype);
         });
     }
 
+    /** Whether this build publishes to Sonatype, either because it is a tag build or because it is a dry run. */
+    Provider<Boolean> releasing() {
+        return rootPlugin.releasing();
+    }
+
+    /** The root project's extension, for options that apply to the whole build. */
+    ExternalPublishRootExtension rootExtension() {
+        return rootPlugin.extension();
+    }
+
+    /** Where dry runs publish to instead, once {@link #startSimulatedRemote()} has run. */
+    Provider<URI> simulatedRemoteUrl() {
+        return rootPlugin.simulatedRemoteUrl();
+    }
+
+    TaskProvider<?> startSimulatedRemote() {
+        return rootPlugin.startSimulatedRemote();
+    }
+
+    Provider<PublishingMetrics> publishingMetrics() {
+        return rootPlugin.publishingMetrics();
+    }
+
+    /**
+     * Has {@code task}, which publishes somewhere other than Sonatype, start once closing and releasing the staging
+     * repository has been handed over to the background, so that the two overlap even without {@code --parallel}.
+     */
+    void overlapWithClosingStagingRepository(Task task) {
+        task.shouldRunAfter(rootPlugin.closeAndReleaseInBackground());
+    }
+
+    /** Whether this build is a dry run, which must never publish anywhere real. */
+    Provider<Boolean> dryRun() {
+        return rootPlugin.extension().getDryRun();
+    }
+
+    /**
+     * Whether this node publishes things that cannot be split between parallel CircleCI nodes, like Gradle and
+     * IntelliJ plugins. Always true unless nodes are sharing a staging repository.
+     */
+    Provider<Boolean> leadNode() {
+        return rootPlugin.leadNode();
+    }
+
     private void disableModuleMetadata() {
         // Turning off module metadata so that all consumers just use regular POMs
         project.getTasks()
@@ -124,30 +530,59 @@ final class ExternalPublishBasePlugin implements Plugin<Project> {
         // This ensures we try out publishing and build all publishable artifacts at PR time before
         // merging into the main branch, rather than having these tasks fail at publish time.
 
-        // Only run on circle node 0 to avoid repeating work on every circle node
-        if (!OurEnvironmentVariables.environmentVariables(project)
-                .isCircleNode0OrLocal()
-                .get()) {
+        // Only run on circle node 0 to avoid repeating work on every circle node, unless the publications are being
+        // split between the nodes, in which case every node checks its own share
+        Provider<Boolean> circleNode0OrLocal = OurEnvironmentVariables.circleNode0OrLocal(project);
+        if (!circleNode0OrLocal.get() && OurEnvironmentVariables.circleNodeTotal(project).get() <= 1) {
             return;
         }
 
         project.getPluginManager().apply(LifecycleBasePlugin.class);
+        Provider<Boolean> buildLocalRepository = rootPlugin.extension().getBuildLocalRepository();
+        Provider<Boolean> checksPublications = rootPlugin
+                .publicationShards()
+                .enabled()
+                .zip(circleNode0OrLocal, (sharded, node0OrLocal) -> sharded || node0OrLocal)
+                // Copying every artifact into a local repository would read it all over again, undoing uploading it
+                // in a single pass, and the upload checks the publications anyway
+                .zip(rootPlugin.singlePassUploads(), (checks, singlePass) -> checks && !singlePass);
+
         project.getTasks().named(LifecycleBasePlugin.BUILD_TASK_NAME).configure(build -> {
             TaskCollection<?> publishToMavenLocalsForOurPublications = project.getTasks()
                     .withType(PublishToMavenLocal.class)
                     .matching(publishToMavenLocal -> {
-                        return sonatypePublicationNames.contains(
-                                publishToMavenLocal.getPublication().getName());
+                        return isOurPublicationOnThisNode(publishToMavenLocal.getPublication());
+                    });
+
+            TaskCollection<?> publishToBuildLocalsForOurPublications =
+                    buildLocalPublishTasks().matching(publishToBuildLocal -> {
+                        return isOurPublicationOnThisNode(publishToBuildLocal.getPublication());
                     });
 
-            build.dependsOn(publishToMavenLocalsForOurPublications);
+            build.dependsOn(checksPublications.zip(buildLocalRepository, (checks, buildLocal) -> {
+                if (!checks) {
+                    return List.of();
+                }
+                return buildLocal ? publishToBuildLocalsForOurPublications : publishToMavenLocalsForOurPublications;
+            }));
         });
     }
 
+    private boolean isOurPublicationOnThisNode(MavenPublication publication) {
+        return sonatypePublicationNames.contains(publication.getName())
+                && publishedByThisNode(publication.getName()).get();
+    }
+
     public void addPublication(String publicationName, Action<MavenPublication> publicationConfiguration) {
         sonatypePublicationNames.add(publicationName);
+        PublishingExtension publishing = project.getExtensions().getByType(PublishingExtension.class);
+        rootPlugin.publicationShards().register(publicationPath(publicationName), project.provider(() -> {
+            MavenPublication publication = (MavenPublication) publishing.getPublications().getByName(publicationName);
+            return publication.getGroupId().replace('.', '/') + "/" + publication.getArtifactId()
+                    + "/maven-metadata.xml";
+        }));
 
-        project.getExtensions().getByType(PublishingExtension.class).publications(publications -> {
+        publishing.publications(publications -> {
             MavenPublication mavenPublication = publications.maybeCreate(publicationName, MavenPublication.class);
             publicationConfiguration.execute(mavenPublication);
             mavenPublication.pom(pom -> {
@@ -166,26 +601,168 @@ final class ExternalPublishBasePlugin implements Plugin<Project> {
                 });
             });
             signPublication(mavenPublication);
+            validatePublication(mavenPublication);
         });
     }
 
-    private void signPublication(Publication publication) {
+    private void validatePublication(MavenPublication publication) {
+        String publicationName = publication.getName();
+        String capitalizedName =
+                publicationName.substring(0, 1).toUpperCase(Locale.ROOT) + publicationName.substring(1);
+        Provider<Boolean> isReleasing = rootPlugin.releasing();
+        Provider<Boolean> publishedByThisNode = publishedByThisNode(publicationName);
+
+        TaskProvider<ValidateCentralPublicationTask> validate = project.getTasks()
+                .register(
+                        "validate" + capitalizedName + "PublicationForMavenCentral",
+                        ValidateCentralPublicationTask.class,
+                        task -> {
+                            task.setDescription("Checks the '" + publicationName
+                                    + "' publication against the rules of Maven Central.");
+                            task.onlyIf(
+                                    "this node publishes the publication",
+                                    _ignored -> isReleasing.get() && publishedByThisNode.get());
+
+                            PublicationArtifactSet<MavenArtifact> artifacts =
+                                    ((MavenPublicationInternal) publication).getPublishableArtifacts();
+                            task.getPom()
+                                    .fileProvider(project.getTasks()
+                                            .named(
+                                                    "generatePomFileFor" + capitalizedName + "Publication",
+                                                    GenerateMavenPom.class)
+                                            .map(GenerateMavenPom::getDestination));
+                            task.getPublishedFiles().from(artifacts.getFiles());
+                            task.getPublishedFileNames()
+                                    .set(project.provider(() -> artifacts.stream()
+                                            .map(artifact -> publishedFileName(publication, artifact))
+                                            .collect(Collectors.toList())));
+                            // Uploading in a single pass signs every file it uploads, so there are no signatures yet
+                            Provider<Boolean> singlePass = rootPlugin.singlePassUploads();
+                            task.getSigned()
+                                    .set(project.provider(() -> GpgSigningKey.fromEnv(project)
+                                                    .isPresent()
+                                            && !singlePass.get()));
+                            task.getWarnOnly().set(dryRun());
+                            task.getReport()
+                                    .set(project.getLayout()
+                                            .getBuildDirectory()
+                                            .file("external-publish/central-validation/" + publicationName + ".txt"));
+                        });
+
+        rootPlugin.validatePublications().configure(validatePublications -> validatePublications.dependsOn(validate));
+    }
+
+    private static String publishedPath(MavenPublication publication, MavenArtifact artifact) {
+        return publication.getGroupId().replace('.', '/') + "/" + publication.getArtifactId() + "/"
+                + publication.getVersion() + "/" + publishedFileName(publication, artifact);
+    }
+
+    private static String publishedFileName(MavenPublication publication, MavenArtifact artifact) {
+        String classifier = artifact.getClassifier() == null || artifact.getClassifier().isEmpty()
+                ? ""
+                : "-" + artifact.getClassifier();
+        return publication.getArtifactId() + "-" + publication.getVersion() + classifier + "."
+                + artifact.getExtension();
+    }
+
+    private void signPublication(MavenPublication publication) {
         GpgSigningKey.fromEnv(project).ifPresent(gpgSigningKey -> {
-            project.getPluginManager().apply(SigningPlugin.class);
+            Provider<SigningKeyService> signingKeyService = SigningKeyService.registerIfAbsent(project, gpgSigningKey);
+            String publicationName = publication.getName();
+            Provider<Boolean> publishedByThisNode = publishedByThisNode(publicationName);
+            Provider<Boolean> signedWhileUploading = rootPlugin.singlePassUploads();
+            String signTaskName = "sign" + publicationName.substring(0, 1).toUpperCase(Locale.ROOT)
+                    + publicationName.substring(1) + "Publication";
 
-            SigningExtension signing = project.getExtensions().getByType(SigningExtension.class);
-            signing.useInMemoryPgpKeys(gpgSigningKey.keyId(), gpgSigningKey.key(), gpgSigningKey.password());
-            signing.sign(publication);
+            Action<Sign> configureSign = sign -> {
+                sign.setDescription("Signs all artifacts in the '" + publicationName + "' publication.");
+                sign.setSignatureType(new ArmoredSignatureType());
+                sign.setSignatory(new SharedSignatory(signingKeyService, gpgSigningKey.keyId()));
+                sign.usesService(signingKeyService);
+                sign.onlyIf("this node publishes the publication", _ignored -> publishedByThisNode.get());
+                sign.onlyIf("it is not signed while uploading instead", _ignored -> !signedWhileUploading.get());
+                measure(sign, Kind.SIGN, publicationName, null);
+
+                // Sign tracks the files it signs by content only, so with the key's fingerprint (and never the key
+                // itself) as an input, re-signing byte-identical artifacts can come straight from the build cache.
+                sign.getInputs()
+                        .property("signingKeyFingerprint", signingKeyService.map(SigningKeyService::fingerprint));
+                sign.getOutputs().cacheIf("signatures only depend on the signed content and key", _ignored -> true);
+            };
+
+            if (GradleVersion.current().getBaseVersion().compareTo(FIRST_UNTESTED_GRADLE_FOR_LAZY_SIGNING) >= 0) {
+                // The signing plugin only publishes the signatures of a task that is not required if they exist, so
+                // skipping the task for a publication this node does not publish also leaves out its signatures
+                project.getPluginManager().apply(SigningPlugin.class);
+                Sign sign = project.getExtensions()
+                        .getByType(SigningExtension.class)
+                        .sign(publication)
+                        .get(0);
+                configureSign.execute(sign);
+                sign.setRequired(false);
+                return;
+            }
+
+            // Registering the Sign task ourselves rather than using the signing plugin's SigningExtension#sign, which
+            // eagerly creates the task and realizes every other Sign task to apply its conventions. So the signing key
+            // is only touched, and the artifacts only built, when something is actually being published.
+            TaskProvider<Sign> signTask = project.getTasks().register(signTaskName, Sign.class, sign -> {
+                configureSign.execute(sign);
+                sign.setRequired(true);
+                sign.sign(publication);
+            });
+
+            addSignaturesToPublication(
+                    (MavenPublicationInternal) publication,
+                    signTask,
+                    publishedByThisNode.zip(signedWhileUploading, (published, whileUploading) -> published
+                            && !whileUploading));
+        });
+    }
+
+    /**
+     * Publishes an armored signature next to every artifact of the publication, built by {@code signTask}. This is
+     * what the signing plugin does too, but without needing the task itself until the publication is published. Uses
+     * Gradle's internal derived artifacts, so only on Gradle versions before
+     * {@link #FIRST_UNTESTED_GRADLE_FOR_LAZY_SIGNING}.
+     */
+    private static void addSignaturesToPublication(
+            MavenPublicationInternal publication, TaskProvider<Sign> signTask, Provider<Boolean> signed) {
+        Map<MavenArtifact, MavenArtifact> signatures = new HashMap<>();
+
+        publication.allPublishableArtifacts(artifact -> {
+            if (artifact instanceof DerivedMavenArtifact) {
+                return;
+            }
+
+            MavenArtifact signature = publication.addDerivedArtifact(artifact, new DerivedArtifact() {
+                @Override
+                public boolean shouldBePublished() {
+                    return signTask.get().isEnabled() && signed.get();
+                }
+
+                @Override
+                public File create() {
+                    return new File(artifact.getFile().getPath() + ".asc");
+                }
+            });
+            signature.builtBy(signTask);
+            signatures.put(artifact, signature);
+        });
+
+        publication.whenPublishableArtifactRemoved(artifact -> {
+            MavenArtifact signature = signatures.remove(artifact);
+            if (signature != null) {
+                publication.removeDerivedArtifact(signature);
+            }
         });
     }
 
     private void addSignPublishDependency() {
         // TODO(gradle#26091): Fix Gradle warning about signing tasks using publishing task outputs without explicit.
         // see: https://github.com/gradle/gradle/issues/26091
-        project.getPluginManager().withPlugin("signing", _plugin -> {
-            project.getTasks().withType(AbstractPublishToMaven.class).configureEach(publishTask -> {
-                publishTask.dependsOn(project.getTasks().withType(Sign.class));
-            });
+        project.getTasks().withType(AbstractPublishToMaven.class).configureEach(publishTask -> {
+            publishTask.dependsOn(project.getTasks().withType(Sign.class));
         });
     }
 
@@ -24,11 +24,9 @@ public class ExternalPublishDistPlugin implements Plugin<Project> {
     @Override
     public final void apply(Project project) {
         ExternalPublishBasePlugin.applyTo(project).addPublication("dist", publication -> {
-            // Unfortunately need to use afterEvaluate here, since MavenPublication#artifact immediately tries to get
-            // the value from the task provider, which will fail if the task has not yet been created.
-            project.afterEvaluate(_ignored -> {
-                publication.artifact(project.getTasks().named("distTar"));
-            });
+            // distTar is usually registered after this plugin is applied, so look it up only once the artifact is
+            // needed. Going through flatMap keeps distTar as the producer, so publishing still builds it first.
+            publication.artifact(project.provider(() -> "distTar").flatMap(name -> project.getTasks().named(name)));
         });
     }
 }
@@ -16,12 +16,13 @@
 
 package com.palantir.gradle.externalpublish;
 
-import com.palantir.gradle.utils.environmentvariables.EnvironmentVariables;
+import com.palantir.gradle.externalpublish.PublishingMetrics.Kind;
 import org.gradle.api.GradleException;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.plugins.ExtraPropertiesExtension;
 import org.gradle.api.plugins.UnknownPluginException;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.TaskProvider;
 
 public class ExternalPublishGradlePluginPlugin implements Plugin<Project> {
@@ -31,7 +32,7 @@ public class ExternalPublishGradlePluginPlugin implements Plugin<Project> {
         project.getPluginManager().apply("java-gradle-plugin");
         // So we can get the publish task
         project.getPluginManager().apply("publishing");
-        project.getPluginManager().apply(ExternalPublishBasePlugin.class);
+        ExternalPublishBasePlugin basePlugin = ExternalPublishBasePlugin.applyTo(project);
 
         try {
             project.getPluginManager().apply("com.gradle.plugin-publish");
@@ -43,18 +44,21 @@ public class ExternalPublishGradlePluginPlugin implements Plugin<Project> {
         TaskProvider<?> publishPluginsTask = project.getTasks().named("publishPlugins");
         project.getTasks().named("publish").configure(publish -> publish.dependsOn(publishPluginsTask));
 
+        Provider<Boolean> isTagBuild = OurEnvironmentVariables.tagBuild(project);
+        Provider<Boolean> dryRun = basePlugin.dryRun();
+        Provider<Boolean> leadNode = basePlugin.leadNode();
         publishPluginsTask.configure(publishPlugins -> {
-            publishPlugins.onlyIf(_ignored -> OurEnvironmentVariables.isTagBuild(project));
+            publishPlugins.onlyIf(_ignored -> isTagBuild.get() && !dryRun.get() && leadNode.get());
+            basePlugin.measure(publishPlugins, Kind.PUBLISH, "gradlePlugins", "gradlePluginPortal");
+            basePlugin.overlapWithClosingStagingRepository(publishPlugins);
         });
 
-        EnvironmentVariables envVars = OurEnvironmentVariables.environmentVariables(project);
-
         ExtraPropertiesExtension extraProperties = project.getExtensions().getExtraProperties();
         extraProperties.set(
                 "gradle.publish.key",
-                envVars.envVarOrFromTestingProperty("GRADLE_KEY").getOrNull());
+                OurEnvironmentVariables.envVarOrFromTestingProperty(project, "GRADLE_KEY").orElse(null));
         extraProperties.set(
                 "gradle.publish.secret",
-                envVars.envVarOrFromTestingProperty("GRADLE_SECRET").getOrNull());
+                OurEnvironmentVariables.envVarOrFromTestingProperty(project, "GRADLE_SECRET").orElse(null));
     }
 }
@@ -15,9 +15,19 @@
  */
 package com.palantir.gradle.externalpublish;
 
+import com.palantir.gradle.externalpublish.PublishingMetrics.Kind;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.InvocationTargetException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.gradle.api.Action;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.JavaExec;
 import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.testing.Test;
@@ -27,6 +37,7 @@ import org.jetbrains.intellij.IntelliJPlugin;
 import org.jetbrains.intellij.tasks.BuildPluginTask;
 import org.jetbrains.intellij.tasks.PatchPluginXmlTask;
 import org.jetbrains.intellij.tasks.PublishPluginTask;
+import org.jetbrains.intellij.tasks.VerifyPluginTask;
 
 public class ExternalPublishIntellijPlugin implements Plugin<Project> {
 
@@ -41,7 +52,8 @@ public class ExternalPublishIntellijPlugin implements Plugin<Project> {
 
         TaskProvider<BuildPluginTask> buildPlugin = project.getTasks().named("buildPlugin", BuildPluginTask.class);
 
-        ExternalPublishBasePlugin.applyTo(project).addPublication("intellij", publication -> {
+        ExternalPublishBasePlugin basePlugin = ExternalPublishBasePlugin.applyTo(project);
+        basePlugin.addPublication("intellij", publication -> {
             publication.artifact(buildPlugin);
         });
 
@@ -55,6 +67,8 @@ public class ExternalPublishIntellijPlugin implements Plugin<Project> {
             task.dependsOn(buildPlugin);
         });
 
+        // The intellij plugin only sets these launchers from its own afterEvaluate, so ours has to come after it to
+        // win. This only adds lazy configuration, so neither task is realized unless it is going to run.
         project.afterEvaluate(projectAfterEvaluate -> {
             projectAfterEvaluate.getTasks().withType(JavaExec.class).named("runIde", task -> {
                 task.getJavaLauncher().set((JavaLauncher) null);
@@ -64,19 +78,79 @@ public class ExternalPublishIntellijPlugin implements Plugin<Project> {
             });
         });
 
+        Provider<Boolean> isTagBuild = OurEnvironmentVariables.tagBuild(project);
+        Provider<Boolean> dryRun = basePlugin.dryRun();
+        Provider<Boolean> leadNode = basePlugin.leadNode();
+        ExternalPublishRootExtension rootExtension = basePlugin.rootExtension();
+        Provider<Boolean> streaming = rootExtension.getStreamingMarketplaceUpload();
+        Provider<String> token = OurEnvironmentVariables.envVar(project, "JETBRAINS_PLUGIN_REPO_TOKEN");
         publishPlugin.configure(task -> {
-            task.onlyIf(_ignored -> OurEnvironmentVariables.isTagBuild(project));
+            task.onlyIf(_ignored -> isTagBuild.get() && !dryRun.get() && leadNode.get() && !streaming.get());
+            basePlugin.measure(task, Kind.PUBLISH, "intellij", "jetbrainsMarketplace");
+            basePlugin.overlapWithClosingStagingRepository(task);
             task.getToken().set(System.getenv("JETBRAINS_PLUGIN_REPO_TOKEN"));
         });
 
+        TaskProvider<UploadToMarketplaceTask> uploadToMarketplace = project.getTasks()
+                .register("uploadPluginToMarketplace", UploadToMarketplaceTask.class, task -> {
+                    task.setDescription("Uploads the plugin to the JetBrains Marketplace.");
+                    task.onlyIf(_ignored -> streaming.get() && (isTagBuild.get() || dryRun.get()) && leadNode.get());
+                    task.dependsOn(basePlugin.startSimulatedRemote());
+                    // Like publishPlugin, never upload a plugin that has not been verified
+                    task.dependsOn(project.getTasks().named("verifyPlugin"));
+                    basePlugin.overlapWithClosingStagingRepository(task);
+                    task.getPlugin().set(buildPlugin.flatMap(BuildPluginTask::getArchiveFile));
+                    task.getChannels().set(publishPlugin.flatMap(PublishPluginTask::getChannels));
+                    task.getMarketplaceUrl()
+                            .set(dryRun.flatMap(isDryRun -> isDryRun
+                                    ? basePlugin.simulatedRemoteUrl().map(URI::toString)
+                                    : project.provider(() -> "https://plugins.jetbrains.com/")));
+                    task.getToken().set(token.orElse(dryRun.map(isDryRun -> isDryRun ? "dry-run" : null)));
+                    task.getRetries().set(rootExtension.getUploadRetries());
+                    task.getInitialBackoff().set(rootExtension.getUploadInitialBackoff());
+                    task.getMaxBackoff().set(rootExtension.getUploadMaxBackoff());
+                    task.getPublicationPath().set(basePlugin.publicationPath("intellij"));
+                    task.usesService(basePlugin.publishingMetrics());
+                    task.getPublishingMetrics().set(basePlugin.publishingMetrics());
+                });
+
         project.getTasks().named("publish", task -> {
-            task.dependsOn(publishPlugin);
+            task.dependsOn(publishPlugin, uploadToMarketplace);
         });
 
         project.getTasks().named("check", task -> {
             task.dependsOn(buildPlugin, project.getTasks().named("verifyPlugin"));
         });
 
+        // An unchanged plugin zips up byte for byte the same, so it can come from the build cache, along with
+        // everything that uses it, like verifying and signing it
+        buildPlugin.configure(task -> {
+            task.setPreserveFileTimestamps(false);
+            task.setReproducibleFileOrder(true);
+            task.getOutputs().cacheIf("the plugin zip is reproducible", _ignored -> true);
+        });
+
+        // verifyPlugin declares no outputs of its own, so it would otherwise run on every build, even though its
+        // result only depends on the plugin it verifies
+        Provider<RegularFile> verificationResult =
+                project.getLayout().getBuildDirectory().file("external-publish/verify-plugin.txt");
+        project.getTasks().named("verifyPlugin", VerifyPluginTask.class).configure(task -> {
+            task.getOutputs().file(verificationResult).withPropertyName("verificationResult");
+            task.getOutputs().cacheIf("the result only depends on the plugin", _ignored -> true);
+            task.doLast(new Action<Task>() {
+                @Override
+                public void execute(Task _ignored) {
+                    Path result = verificationResult.get().getAsFile().toPath();
+                    try {
+                        Files.createDirectories(result.getParent());
+                        Files.writeString(result, "The plugin passed verification\n");
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Failed to write " + result, e);
+                    }
+                }
+            });
+        });
+
         project.getTasks().named("buildSearchableOptions", task -> {
             task.setEnabled(false);
         });
@@ -16,12 +16,25 @@
 
 package com.palantir.gradle.externalpublish;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.gradle.api.Action;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.file.Directory;
 import org.gradle.api.plugins.JavaLibraryPlugin;
 import org.gradle.api.plugins.JavaPluginExtension;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.javadoc.Javadoc;
 import org.gradle.jvm.tasks.Jar;
 
 public class ExternalPublishJarPlugin implements Plugin<Project> {
@@ -30,18 +43,20 @@ public class ExternalPublishJarPlugin implements Plugin<Project> {
     public final void apply(Project project) {
         configureJars(project);
 
-        ExternalPublishBasePlugin.applyTo(project)
-                .addPublication(
-                        "maven", maven -> maven.from(project.getComponents().getByName("java")));
+        ExternalPublishBasePlugin basePlugin = ExternalPublishBasePlugin.applyTo(project);
+        configureJavadoc(project, basePlugin.releasing());
+        basePlugin.addPublication("maven", maven -> maven.from(project.getComponents().getByName("java")));
     }
 
     private static void configureJars(Project project) {
         project.getPluginManager().apply(JavaLibraryPlugin.class);
 
+        Provider<String> version = project.provider(() -> Objects.toString(project.getVersion()));
+
         project.getTasks().withType(Jar.class).named("jar").configure(jar -> {
             jar.getManifest()
-                    .attributes(
-                            Collections.singletonMap("Implementation-Version", new ProjectVersionToString(project)));
+                    .attributes(Collections.singletonMap(
+                            "Implementation-Version", new ProjectVersionToString(version)));
         });
 
         JavaPluginExtension javaPluginExtension = project.getExtensions().getByType(JavaPluginExtension.class);
@@ -49,21 +64,79 @@ public class ExternalPublishJarPlugin implements Plugin<Project> {
         javaPluginExtension.withSourcesJar();
     }
 
+    private static void configureJavadoc(Project project, Provider<Boolean> releasing) {
+        Provider<JavadocTimings> timings = JavadocTimings.registerIfAbsent(project);
+        Provider<Directory> placeholderDir =
+                project.getLayout().getBuildDirectory().dir("external-publish/placeholder-javadoc");
+
+        project.getTasks().withType(Javadoc.class).named("javadoc").configure(javadoc -> {
+            boolean placeholderJavadoc = project.getRootProject()
+                    .getExtensions()
+                    .getByType(ExternalPublishRootExtension.class)
+                    .getPlaceholderJavadocUnlessReleasing()
+                    .get();
+
+            if (!placeholderJavadoc || releasing.get()) {
+                JavadocTimings.measure(javadoc, timings);
+                return;
+            }
+
+            // Writing the placeholder somewhere else, so it never overwrites full javadoc from an earlier build, and
+            // keeping it out of the build cache, where it would only push out full javadoc
+            javadoc.setDestinationDir(placeholderDir.get().getAsFile());
+            javadoc.getOutputs().doNotCacheIf("it is only a placeholder", _ignored -> true);
+            javadoc.usesService(timings);
+            javadoc.setActions(List.of(new WritePlaceholderJavadoc(timings)));
+        });
+    }
+
+    private static final class WritePlaceholderJavadoc implements Action<Task> {
+        private final Provider<JavadocTimings> timings;
+
+        private WritePlaceholderJavadoc(Provider<JavadocTimings> timings) {
+            this.timings = timings;
+        }
+
+        @Override
+        public void execute(Task task) {
+            Javadoc javadoc = (Javadoc) task;
+            Path destination = javadoc.getDestinationDir().toPath();
+
+            try {
+                if (Files.exists(destination)) {
+                    try (Stream<Path> paths = Files.walk(destination)) {
+                        for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                            Files.delete(path);
+                        }
+                    }
+                }
+                Files.createDirectories(destination);
+                Files.writeString(
+                        destination.resolve("index.html"),
+                        "<!DOCTYPE html>\n<html><body><p>Javadoc is only generated for releases.</p></body></html>\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write placeholder javadoc to " + destination, e);
+            }
+
+            timings.get().skipped(task.getPath(), javadoc.getSource().getFiles().size());
+        }
+    }
+
     /**
      * This is effectively a provider for the project version string value. The jar manifest may be configured
      * before project versions have been set, particularly for subprojects which are configured via 'allprojects'
-     * or 'subprojects'.
+     * or 'subprojects'. It holds a provider rather than the project so it can be stored in the configuration cache.
      */
     private static final class ProjectVersionToString {
-        private final Project project;
+        private final Provider<String> version;
 
-        private ProjectVersionToString(Project project) {
-            this.project = project;
+        private ProjectVersionToString(Provider<String> version) {
+            this.version = version;
         }
 
         @Override
         public String toString() {
-            return Objects.toString(project.getVersion());
+            return version.get();
         }
     }
 }
@@ -0,0 +1,183 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish;
+
+import java.time.Duration;
+import javax.inject.Inject;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.ProviderFactory;
+
+public abstract class ExternalPublishRootExtension {
+    public static final String NAME = "externalPublish";
+
+    /**
+     * Instead of uploading every file of every publication to a Nexus staging repository with its own request, collect
+     * all publications into a single deployment bundle and upload it once to the Central Publisher API.
+     */
+    public abstract Property<Boolean> getCentralPortalBundle();
+
+    /**
+     * Compress application dist {@code distTar}s on every core, producing byte-for-byte reproducible gzip output,
+     * rather than on the single thread Gradle uses.
+     */
+    public abstract Property<Boolean> getParallelDistCompression();
+
+    /**
+     * When checking publications as part of {@code build}, publish them into a repository in each project's build
+     * directory rather than into the shared {@code ~/.m2}. These publishes are up-to-date when nothing has changed.
+     */
+    public abstract Property<Boolean> getBuildLocalRepository();
+
+    /**
+     * Only generate full javadoc on tag builds (and dry runs). Every other build puts a placeholder page in the javadoc
+     * jar instead, so publications are still checked as part of {@code build} without documenting every project. At
+     * the end of the build, reports how long the skipped javadoc took the last time it ran in full.
+     */
+    public abstract Property<Boolean> getPlaceholderJavadocUnlessReleasing();
+
+    /**
+     * Upload publications to the Sonatype staging repository through one pool of keep-alive (and, where available,
+     * HTTP/2) connections shared by the whole build, instead of a new transport for every publish task. Each project
+     * publishes into a local directory first, which its {@code uploadToSonatype} task then uploads.
+     */
+    public abstract Property<Boolean> getPooledSonatypeUploads();
+
+    /**
+     * The most uploads to Sonatype in flight at once, across the whole build. Publish tasks that use Gradle's own
+     * transport count as one upload each. With {@link #getPooledSonatypeUploads()}, every file counts, and the number
+     * in flight starts here but shrinks whenever Sonatype throttles uploads or slows down, then grows back.
+     */
+    public abstract Property<Integer> getMaxConcurrentUploads();
+
+    /**
+     * With {@link #getPooledSonatypeUploads()}, the most uploads to start per second, across the whole build. Zero
+     * means unlimited.
+     */
+    public abstract Property<Double> getMaxUploadsPerSecond();
+
+    /** With {@link #getPooledSonatypeUploads()}, how many times to retry an upload that Sonatype throttled. */
+    public abstract Property<Integer> getUploadRetries();
+
+    /**
+     * With {@link #getPooledSonatypeUploads()}, upload the artifacts of every publication straight from where they
+     * were built, reading each one only once to sign it, work out its checksums and upload it, rather than reading it
+     * again for each of these. Has no effect when splitting releases between CircleCI nodes.
+     */
+    public abstract Property<Boolean> getSinglePassUploads();
+
+    /**
+     * With {@link #getPooledSonatypeUploads()}, how long to wait before the first retry of a throttled upload. This
+     * doubles, with jitter, for every further retry.
+     */
+    public abstract Property<Duration> getUploadInitialBackoff();
+
+    /** The longest to wait between retries of a throttled upload. */
+    public abstract Property<Duration> getUploadMaxBackoff();
+
+    /**
+     * With {@link #getPooledSonatypeUploads()}, whenever uploads are waiting to start, across every project in the
+     * build, start the largest first. A big upload, like an application dist, then no longer queues behind lots of
+     * small files and runs on its own at the end of the release. The publishing metrics show how long the last upload
+     * ran on its own.
+     */
+    public abstract Property<Boolean> getLargestUploadsFirst();
+
+    /**
+     * On tag builds, start opening the staging repository in the background as soon as the build starts, so that
+     * Sonatype's answer is not waited for right before the first upload. If nothing is uploaded to it in the end, say
+     * because the build failed, it is dropped again.
+     */
+    public abstract Property<Boolean> getStartStagingRepositoryEarly();
+
+    /**
+     * Close and release the staging repository in the background, rather than with the Nexus plugin's tasks, so that
+     * Gradle carries on with other remote operations, like publishing to the Gradle Plugin Portal or the JetBrains
+     * Marketplace, while Sonatype evaluates the staging repository. The publishing metrics show how much time this
+     * saved.
+     */
+    public abstract Property<Boolean> getCloseAndReleaseInBackground();
+
+    /**
+     * Publish IntelliJ plugins to the JetBrains Marketplace by streaming the plugin zip from disk, retrying with
+     * backoff as for {@link #getUploadRetries()}, rather than with the IntelliJ plugin's {@code publishPlugin}
+     * task. The upload runs in the background, at the same time as other tasks like closing the staging repository.
+     * During dry runs the plugin is uploaded to the simulated remote.
+     */
+    public abstract Property<Boolean> getStreamingMarketplaceUpload();
+
+    /**
+     * Split the publications of tag builds between the parallel nodes of the CircleCI job, so each node signs and
+     * uploads only its share. Every node uploads into one staging repository, opened by node 0, which then closes and
+     * releases it once the publications of all the other nodes have been uploaded. Publications checked as part of
+     * {@code build} are split between the nodes in the same way. Has no effect with {@link #getCentralPortalBundle()}.
+     */
+    public abstract Property<Boolean> getShardAcrossCircleNodes();
+
+    /**
+     * Run the whole {@code publish} graph as if this were a tag build, including opening, closing and releasing the
+     * staging repository, but against a local simulated remote rather than Sonatype. Everything that would have been
+     * uploaded, and every request in order, is written to {@code build/external-publish/dry-run}. Signs with the real
+     * key, and never publishes Gradle or IntelliJ plugins. Defaults to the {@code externalPublish.dryRun} Gradle
+     * property, so it can be turned on from the command line.
+     */
+    public abstract Property<Boolean> getDryRun();
+
+    /** How long the simulated remote takes to answer each request during a dry run. */
+    public abstract Property<Duration> getDryRunLatency();
+
+    /**
+     * How many uploads the simulated remote accepts at once during a dry run, answering any more than that with
+     * HTTP 429, like Sonatype does when it is overwhelmed. Zero means unlimited.
+     */
+    public abstract Property<Integer> getDryRunConcurrencyLimit();
+
+    /**
+     * How many bytes per second the simulated remote accepts during a dry run, shared between all uploads. Zero means
+     * unlimited.
+     */
+    public abstract Property<Long> getDryRunBandwidth();
+
+    @Inject
+    protected abstract ProviderFactory getProviders();
+
+    public ExternalPublishRootExtension() {
+        getCentralPortalBundle().convention(false);
+        getParallelDistCompression().convention(false);
+        getBuildLocalRepository().convention(false);
+        getPlaceholderJavadocUnlessReleasing().convention(false);
+        getPooledSonatypeUploads().convention(false);
+        getShardAcrossCircleNodes().convention(false);
+        getStartStagingRepositoryEarly().convention(false);
+        getStreamingMarketplaceUpload().convention(false);
+        getCloseAndReleaseInBackground().convention(false);
+        getMaxConcurrentUploads().convention(32);
+        getMaxUploadsPerSecond().convention(0d);
+        getUploadRetries().convention(8);
+        getUploadInitialBackoff().convention(Duration.ofMillis(500));
+        getUploadMaxBackoff().convention(Duration.ofSeconds(30));
+        getLargestUploadsFirst().convention(false);
+        getSinglePassUploads().convention(false);
+        getDryRun()
+                .convention(getProviders()
+                        .gradleProperty("externalPublish.dryRun")
+                        .map(Boolean::parseBoolean)
+                        .orElse(false));
+        getDryRunLatency().convention(Duration.ZERO);
+        getDryRunBandwidth().convention(0L);
+        getDryRunConcurrencyLimit().convention(0);
+    }
+}
@@ -16,20 +16,56 @@
 
 package com.palantir.gradle.externalpublish;
 
-import com.palantir.gradle.utils.environmentvariables.EnvironmentVariables;
+import com.palantir.gradle.externalpublish.PublishingMetrics.Kind;
+import io.github.gradlenexus.publishplugin.AbstractTransitionNexusStagingRepositoryTask;
+import io.github.gradlenexus.publishplugin.FindStagingRepository;
 import io.github.gradlenexus.publishplugin.NexusPublishExtension;
 import io.github.gradlenexus.publishplugin.NexusPublishPlugin;
+import io.github.gradlenexus.publishplugin.NexusRepository;
 import java.net.URI;
 import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+import org.gradle.api.Action;
 import org.gradle.api.GradleException;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.file.Directory;
+import org.gradle.api.logging.Logger;
 import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Delete;
 import org.gradle.api.tasks.TaskProvider;
+import org.gradle.api.tasks.bundling.Zip;
 
 public class ExternalPublishRootPlugin implements Plugin<Project> {
+    static final String CENTRAL_BUNDLE_REPOSITORY_NAME = "centralBundle";
+
     private Project rootProject;
+    private ExternalPublishRootExtension extension;
+    private OurEnvironmentVariables environmentVariables;
+    private NexusRepository sonatypeRepository;
+    private TaskProvider<Delete> cleanCentralBundleRepository;
+    private TaskProvider<Zip> bundleCentralPublications;
+    private TaskProvider<UploadCentralBundleTask> uploadCentralBundle;
+    private Provider<PreviousAttempts> previousAttempts;
+    private Provider<PublishingMetrics> publishingMetrics;
+    private Provider<Boolean> releasing;
+    private PublicationShards publicationShards;
+    private Provider<Boolean> sharingStagingRepository;
+    private Provider<Boolean> singlePassUploads;
+    private Provider<Boolean> leadNode;
+    private Provider<String> stagingRepositoryId;
+    private Provider<SonatypeUploadService> sonatypeUploadService;
+    private TaskProvider<?> startSimulatedRemote;
+    private Provider<URI> simulatedRemoteUrl;
+    private TaskProvider<?> awaitOtherNodes;
+    private TaskProvider<?> validatePublications;
+    private TaskProvider<?> startStagingRepositoryEarly;
+    private Provider<EarlyStagingRepository> earlyStagingRepository;
+    private TaskProvider<CloseAndReleaseStagingRepositoryTask> closeAndReleaseInBackground;
 
     @Override
     public final void apply(Project rootProjectVal) {
@@ -40,6 +76,42 @@ public class ExternalPublishRootPlugin implements Plugin<Project> {
                     + " plugin must be applied on the root project");
         }
 
+        environmentVariables = new OurEnvironmentVariables(rootProject);
+        extension = rootProject
+                .getExtensions()
+                .create(ExternalPublishRootExtension.NAME, ExternalPublishRootExtension.class);
+        publishingMetrics = PublishingMetrics.registerIfAbsent(rootProject);
+
+        Provider<Boolean> dryRun = extension.getDryRun();
+        Provider<SimulatedRemote> simulatedRemote = SimulatedRemote.registerIfAbsent(rootProject, extension);
+        // Only known once the remote has started, which the tasks using it make sure has happened
+        simulatedRemoteUrl = simulatedRemote.map(SimulatedRemote::url);
+        Provider<URI> simulatedRemoteUrl = this.simulatedRemoteUrl;
+        // Any credentials will do for the simulated remote, so a dry run works without the real ones
+        Provider<String> dryRunCredential = dryRun.map(isDryRun -> isDryRun ? "dry-run" : null);
+        releasing = environmentVariables.tagBuild().zip(dryRun, (tag, isDryRun) -> tag || isDryRun);
+
+        publicationShards = new PublicationShards(
+                rootProject,
+                environmentVariables,
+                extension
+                        .getShardAcrossCircleNodes()
+                        .zip(extension.getCentralPortalBundle(), (shard, bundle) -> shard && !bundle));
+        // Each node of a dry run publishes to its own simulated remote, so there the nodes only split the work
+        sharingStagingRepository = publicationShards.enabled().zip(dryRun, (sharded, isDryRun) -> sharded && !isDryRun);
+        leadNode = sharingStagingRepository.zip(
+                publicationShards.nodeIndex(), (sharing, nodeIndex) -> !sharing || nodeIndex == 0);
+        Provider<Boolean> isSharingStagingRepository = sharingStagingRepository;
+        // Nodes sharing a staging repository need the maven-metadata.xml of the local staging directory to tell when
+        // each other's publications have been uploaded
+        singlePassUploads = extension
+                .getSinglePassUploads()
+                .zip(extension.getPooledSonatypeUploads(), (singlePass, pooled) -> singlePass && pooled)
+                .zip(releasing, (singlePass, isReleasing) -> singlePass && isReleasing)
+                .zip(extension.getCentralPortalBundle(), (singlePass, bundle) -> singlePass && !bundle)
+                .zip(sharingStagingRepository, (singlePass, sharing) -> singlePass && !sharing);
+        Provider<Boolean> isLeadNode = leadNode;
+
         rootProject.getPluginManager().apply(NexusPublishPlugin.class);
         NexusPublishExtension publishExtension = rootProject.getExtensions().getByType(NexusPublishExtension.class);
 
@@ -47,11 +119,19 @@ public class ExternalPublishRootPlugin implements Plugin<Project> {
         publishExtension.getConnectTimeout().set(Duration.ofMinutes(25));
         publishExtension.getClientTimeout().set(Duration.ofMinutes(25));
 
-        publishExtension.getRepositories().sonatype(repo -> {
-            EnvironmentVariables envVars = OurEnvironmentVariables.environmentVariables(rootProject);
+        // Every node sharing a staging repository has to be able to find the one the lead node opened for this job
+        Provider<String> buildNumber = environmentVariables.envVar("CIRCLE_BUILD_NUM");
+        Provider<String> stagingRepositoryDescription = rootProject.provider(() -> {
+            String description = rootProject.getGroup() + ":" + rootProject.getName() + ":" + rootProject.getVersion();
+            return isSharingStagingRepository.get()
+                    ? description + " (CircleCI build " + buildNumber.getOrElse("unknown") + ")"
+                    : description;
+        });
+        publishExtension.getRepositoryDescription().set(stagingRepositoryDescription);
 
-            Provider<String> nexusUrl = envVars.envVarOrFromTestingProperty("SONATYPE_NEXUS_URL");
-            Provider<String> snapshotRepositoryUrl = envVars.envVarOrFromTestingProperty("SONATYPE_SNAPSHOT_REPO_URL");
+        sonatypeRepository = publishExtension.getRepositories().sonatype(repo -> {
+            Provider<String> nexusUrl = environmentVariables.envVar("SONATYPE_NEXUS_URL");
+            Provider<String> snapshotRepositoryUrl = environmentVariables.envVar("SONATYPE_SNAPSHOT_REPO_URL");
 
             if (nexusUrl.isPresent()) {
                 repo.getNexusUrl().set(URI.create(nexusUrl.get()));
@@ -61,40 +141,407 @@ public class ExternalPublishRootPlugin implements Plugin<Project> {
                 repo.getSnapshotRepositoryUrl().set(URI.create(snapshotRepositoryUrl.get()));
             }
 
+            URI realNexusUrl = repo.getNexusUrl().get();
+            URI realSnapshotRepositoryUrl = repo.getSnapshotRepositoryUrl().get();
+            repo.getNexusUrl()
+                    .set(dryRun.flatMap(
+                            isDryRun -> isDryRun ? simulatedRemoteUrl : rootProject.provider(() -> realNexusUrl)));
+            repo.getSnapshotRepositoryUrl()
+                    .set(dryRun.flatMap(isDryRun -> isDryRun
+                            ? simulatedRemoteUrl.map(url -> url.resolve("content/repositories/snapshots/"))
+                            : rootProject.provider(() -> realSnapshotRepositoryUrl)));
+            repo.getStagingProfileId().set(dryRun.map(isDryRun -> isDryRun ? "simulated" : null));
+
             repo.getUsername()
-                    .set(envVars.envVarOrFromTestingProperty("SONATYPE_USERNAME")
-                            .getOrNull());
+                    .set(environmentVariables.envVar("SONATYPE_USERNAME")
+                            .orElse(dryRunCredential));
             repo.getPassword()
-                    .set(envVars.envVarOrFromTestingProperty("SONATYPE_PASSWORD")
-                            .getOrNull());
+                    .set(environmentVariables.envVar("SONATYPE_PASSWORD")
+                            .orElse(dryRunCredential));
         });
 
+        startSimulatedRemote = rootProject.getTasks().register("startSimulatedRemote", start -> {
+            start.setDescription("Starts the local stand-in for Sonatype that dry runs publish to.");
+            start.onlyIf(_ignored -> dryRun.get());
+            start.usesService(simulatedRemote);
+            start.doLast(new Action<Task>() {
+                @Override
+                public void execute(Task _ignored) {
+                    // Starting the service starts the server, which then keeps running until the end of the build
+                    simulatedRemote.get();
+                }
+            });
+        });
+
+        Provider<Boolean> isReleasing = releasing;
+        Provider<Boolean> isFork = environmentVariables.fork();
+        Provider<Boolean> centralPortalBundle = extension.getCentralPortalBundle();
+
         TaskProvider<?> checkSigningKeyTask = rootProject
                 .getTasks()
                 .register("checkSigningKey", CheckSigningKeyTask.class, checkSigningKey -> {
-                    checkSigningKey.onlyIf(_ignored -> !OurEnvironmentVariables.isFork(rootProject));
+                    checkSigningKey.onlyIf(_ignored -> !isFork.get());
+                    checkSigningKey
+                            .getSigningKeyPresent()
+                            .set(rootProject.provider(() -> GpgSigningKey.fromEnv(rootProject)
+                                    .isPresent()));
+                });
+
+        TaskProvider<?> checkVersion = rootProject
+                .getTasks()
+                .register("checkVersion", CheckVersionTask.class, checkVersionTask -> {
+                    checkVersionTask
+                            .getProjectVersion()
+                            .set(rootProject.provider(() -> rootProject.getVersion().toString()));
                 });
 
-        TaskProvider<?> checkVersion = rootProject.getTasks().register("checkVersion", CheckVersionTask.class);
+        validatePublications = rootProject.getTasks().register("validatePublicationsForMavenCentral", validate -> {
+            validate.setDescription("Checks every publication against the rules of Maven Central before any upload.");
+        });
+
+        previousAttempts = PreviousAttempts.registerIfAbsent(
+                rootProject, sonatypeRepository, stagingRepositoryDescription, sharingStagingRepository);
+        Provider<PreviousAttempts> attempts = previousAttempts;
+        sonatypeUploadService = SonatypeUploadService.registerIfAbsent(rootProject, sonatypeRepository, extension);
+        stagingRepositoryId = rootProject
+                .getTasks()
+                .named("closeSonatypeStagingRepository", AbstractTransitionNexusStagingRepositoryTask.class)
+                .flatMap(AbstractTransitionNexusStagingRepositoryTask::getStagingRepositoryId);
+
+        TaskProvider<?> awaitSharedStagingRepository = rootProject
+                .getTasks()
+                .register("awaitSharedStagingRepository", await -> {
+                    await.setDescription("Waits for CircleCI node 0 to open the staging repository all nodes share.");
+                    await.onlyIf(_ignored -> isReleasing.get() && !isLeadNode.get());
+                    await.doLast(awaitingStagingRepository((client, logger) ->
+                            SharedStagingRepository.awaitOpened(client, stagingRepositoryDescription.get(), logger)));
+                    CircleCiContextDeadlineAvoidance.avoidHittingCircleCiContextDeadlineByPrintingEverySoOften(await);
+                });
+
+        // On the lead node, unless carrying on in the staging repository of a previous attempt, open the staging
+        // repository in the background as soon as the build starts, then pick it up once something needs it
+        earlyStagingRepository = EarlyStagingRepository.registerIfAbsent(
+                rootProject, sonatypeRepository, publishExtension.getPackageGroup(), stagingRepositoryDescription);
+        Provider<EarlyStagingRepository> earlyStagingRepository = this.earlyStagingRepository;
+        Provider<Boolean> startingEarly = extension.getStartStagingRepositoryEarly();
+        startStagingRepositoryEarly = rootProject
+                .getTasks()
+                .register("startSonatypeStagingRepositoryEarly", start -> {
+                    start.setDescription("Starts opening the staging repository in the background.");
+                    start.usesService(earlyStagingRepository);
+                    start.usesService(attempts);
+                    start.dependsOn(startSimulatedRemote);
+                    start.onlyIf(_ignored -> startingEarly.get()
+                            && isReleasing.get()
+                            && !centralPortalBundle.get()
+                            && isLeadNode.get()
+                            && attempts.get().reusableStagingRepository().isEmpty());
+                    start.doLast(new Action<Task>() {
+                        @Override
+                        public void execute(Task _ignored) {
+                            earlyStagingRepository.get().start();
+                        }
+                    });
+                });
+        Provider<Boolean> openingEarly = startingEarly.zip(isLeadNode, (early, lead) -> early && lead);
+
+        // If a previous attempt at this tag build left a staging repository open, find it and carry on uploading to it
+        // instead of opening a new one. Nodes sharing a staging repository always find the one the lead node opened.
+        TaskProvider<FindStagingRepository> findStagingRepository = rootProject
+                .getTasks()
+                .named("findSonatypeStagingRepository", FindStagingRepository.class, find -> {
+                    PublishingMetrics.measure(find, publishingMetrics, Kind.STAGING, null, "sonatype");
+                    find.usesService(attempts);
+                    find.usesService(earlyStagingRepository);
+                    find.dependsOn(startSimulatedRemote, awaitSharedStagingRepository, startStagingRepositoryEarly);
+                    // Only waits on the staging repository opening early once nothing quick can fail the build
+                    // anymore, as a build failing before that leaves it unused, to be dropped again
+                    find.dependsOn(checkSigningKeyTask, checkVersion, validatePublications);
+                    find.onlyIf(_ignored -> isReleasing.get()
+                            && !centralPortalBundle.get()
+                            && (!isLeadNode.get()
+                                    || openingEarly.get()
+                                    || attempts.get().reusableStagingRepository().isPresent()));
+                    // A previous attempt's staging repository has the same description as the one this attempt opens
+                    find.getDescriptionRegex().set(stagingRepositoryDescription.map(Pattern::quote));
+                    find.doFirst(new Action<Task>() {
+                        @Override
+                        public void execute(Task _ignored) {
+                            if (openingEarly.get() && attempts.get().reusableStagingRepository().isEmpty()) {
+                                earlyStagingRepository.get().awaitOpened();
+                            }
+                        }
+                    });
+                });
 
         rootProject.getTasks().named("initializeSonatypeStagingRepository").configure(initialize -> {
-            initialize.onlyIf(_ignored -> OurEnvironmentVariables.isTagBuild(rootProject));
-            initialize.dependsOn(checkSigningKeyTask, checkVersion);
+            PublishingMetrics.measure(initialize, publishingMetrics, Kind.STAGING, null, "sonatype");
+            initialize.usesService(attempts);
+            initialize.onlyIf(_ignored -> isReleasing.get()
+                    && !centralPortalBundle.get()
+                    && isLeadNode.get()
+                    && !openingEarly.get()
+                    && attempts.get().reusableStagingRepository().isEmpty());
+            initialize.dependsOn(checkSigningKeyTask, checkVersion, validatePublications, findStagingRepository);
+        });
+
+        Provider<List<String>> metadataPathsFromOtherNodes = publicationShards.metadataPathsFromOtherNodes();
+        Provider<String> closingRepositoryId = stagingRepositoryId;
+        awaitOtherNodes = rootProject.getTasks().register("awaitOtherNodes", await -> {
+            await.setDescription("Waits for the other CircleCI nodes to upload their publications to the staging"
+                    + " repository.");
+            await.onlyIf(_ignored -> isReleasing.get() && isSharingStagingRepository.get() && isLeadNode.get());
+            await.dependsOn("initializeSonatypeStagingRepository");
+            await.doLast(awaitingStagingRepository((client, logger) -> SharedStagingRepository.awaitPublications(
+                    client, closingRepositoryId.get(), metadataPathsFromOtherNodes.get(), logger)));
+            CircleCiContextDeadlineAvoidance.avoidHittingCircleCiContextDeadlineByPrintingEverySoOften(await);
+        });
+
+        // Before anything else adds actions to these tasks, as this replaces the ones the Nexus plugin gave them
+        transitionStagingRepositoryOnTaskThread(
+                "closeSonatypeStagingRepository", "closed", stagingRepositoryDescription);
+        transitionStagingRepositoryOnTaskThread(
+                "releaseSonatypeStagingRepository", "released", stagingRepositoryDescription);
+
+        rootProject.getTasks().named("closeSonatypeStagingRepository").configure(close -> {
+            close.onlyIf(_ignored -> isLeadNode.get());
+            close.dependsOn(awaitOtherNodes);
+        });
+
+        rootProject.getTasks().named("releaseSonatypeStagingRepository").configure(release -> {
+            release.onlyIf(_ignored -> isLeadNode.get());
         });
 
         rootProject
                 .getTasks()
                 .named("closeSonatypeStagingRepository")
                 .configure(CircleCiContextDeadlineAvoidance::avoidHittingCircleCiContextDeadlineByPrintingEverySoOften);
+
+        // Nothing else needs to wait for Sonatype to evaluate the staging repository, so this hands it over to a
+        // worker and leaves Gradle free to publish elsewhere at the same time
+        closeAndReleaseInBackground = rootProject
+                .getTasks()
+                .register(
+                        "closeAndReleaseSonatypeStagingRepositoryInBackground",
+                        CloseAndReleaseStagingRepositoryTask.class,
+                        closeAndRelease -> {
+                            closeAndRelease.setDescription(
+                                    "Closes and releases the staging repository, without holding up other tasks.");
+                            closeAndRelease.onlyIf(_ignored -> isReleasing.get() && isLeadNode.get());
+                            closeAndRelease.dependsOn(startSimulatedRemote, awaitOtherNodes);
+                            closeAndRelease.usesService(publishingMetrics);
+                            closeAndRelease.getStagingRepositoryId().set(closingRepositoryId);
+                            closeAndRelease.getRepositoryDescription().set(stagingRepositoryDescription);
+                            closeAndRelease.getNexusUrl().set(sonatypeRepository.getNexusUrl());
+                            closeAndRelease.getUsername().set(sonatypeRepository.getUsername());
+                            closeAndRelease.getPassword().set(sonatypeRepository.getPassword());
+                            closeAndRelease.getPublishingMetrics().set(publishingMetrics);
+                        });
+
+        configureCentralPortalBundle(checkSigningKeyTask, checkVersion, simulatedRemoteUrl);
+    }
+
+    /** A task action that waits on the staging repository, through a client that only captures providers. */
+    private Action<Task> awaitingStagingRepository(BiConsumer<NexusStagingClient, Logger> await) {
+        Provider<URI> nexusUrl = sonatypeRepository.getNexusUrl();
+        Provider<String> username = sonatypeRepository.getUsername();
+        Provider<String> password = sonatypeRepository.getPassword();
+
+        return new Action<Task>() {
+            @Override
+            public void execute(Task task) {
+                await.accept(new NexusStagingClient(nexusUrl.get(), username.get(), password.get()), task.getLogger());
+            }
+        };
+    }
+
+    private void transitionStagingRepositoryOnTaskThread(
+            String taskName, String targetType, Provider<String> stagingRepositoryDescription) {
+        rootProject
+                .getTasks()
+                .named(taskName, AbstractTransitionNexusStagingRepositoryTask.class)
+                .configure(transition -> {
+                    StagingRepositoryWatcher.transitionOnTaskThread(
+                            transition,
+                            transition.getStagingRepositoryId(),
+                            stagingRepositoryDescription,
+                            sonatypeRepository.getNexusUrl(),
+                            sonatypeRepository.getUsername(),
+                            sonatypeRepository.getPassword(),
+                            targetType,
+                            publishingMetrics);
+                    transition.dependsOn(startSimulatedRemote);
+                    PublishingMetrics.measure(transition, publishingMetrics, Kind.STAGING, null, "sonatype");
+                });
     }
 
-    public final Optional<TaskProvider<?>> sonatypeFinishingTask() {
-        boolean isTagBuild = OurEnvironmentVariables.isTagBuild(rootProject);
+    private void configureCentralPortalBundle(
+            TaskProvider<?> checkSigningKeyTask, TaskProvider<?> checkVersion, Provider<URI> simulatedRemoteUrl) {
+        Provider<Boolean> isReleasing = releasing;
+        Provider<Boolean> dryRun = extension.getDryRun();
+        Provider<String> dryRunCredential = dryRun.map(isDryRun -> isDryRun ? "dry-run" : null);
 
-        if (!isTagBuild) {
+        cleanCentralBundleRepository = rootProject
+                .getTasks()
+                .register("cleanCentralBundleRepository", Delete.class, clean -> {
+                    clean.delete(centralBundleRepositoryDir());
+                });
+
+        bundleCentralPublications = rootProject.getTasks().register("bundleCentralPublications", Zip.class, zip -> {
+            zip.from(centralBundleRepositoryDir());
+            // The Central Portal works out the maven-metadata.xml files itself and rejects bundles containing them
+            zip.exclude("**/maven-metadata.xml*");
+            zip.getDestinationDirectory()
+                    .set(rootProject.getLayout().getBuildDirectory().dir("external-publish"));
+            zip.getArchiveFileName().set("central-bundle.zip");
+            zip.setPreserveFileTimestamps(false);
+            zip.setReproducibleFileOrder(true);
+        });
+
+        uploadCentralBundle = rootProject
+                .getTasks()
+                .register("uploadCentralBundle", UploadCentralBundleTask.class, upload -> {
+                    upload.onlyIf(_ignored -> isReleasing.get());
+                    PublishingMetrics.measure(upload, publishingMetrics, Kind.PUBLISH, null, "centralPortal");
+                    upload.getPublishingMetrics().set(publishingMetrics);
+                    upload.dependsOn(checkSigningKeyTask, checkVersion, validatePublications, startSimulatedRemote);
+                    upload.getBundle().set(bundleCentralPublications.flatMap(Zip::getArchiveFile));
+                    upload.getCentralUrl()
+                            .set(dryRun.flatMap(isDryRun -> isDryRun
+                                    ? simulatedRemoteUrl.map(URI::toString)
+                                    : environmentVariables.envVar("SONATYPE_CENTRAL_URL")
+                                            .orElse("https://central.sonatype.com/")));
+                    upload.getDeploymentName()
+                            .set(rootProject.provider(
+                                    () -> rootProject.getGroup() + ":" + rootProject.getName() + ":"
+                                            + rootProject.getVersion()));
+                    upload.getUsername()
+                            .set(environmentVariables.envVar("SONATYPE_USERNAME")
+                                    .orElse(dryRunCredential));
+                    upload.getPassword()
+                            .set(environmentVariables.envVar("SONATYPE_PASSWORD")
+                                    .orElse(dryRunCredential));
+                });
+    }
+
+    final Provider<Directory> centralBundleRepositoryDir() {
+        return rootProject.getLayout().getBuildDirectory().dir("external-publish/central-bundle/repository");
+    }
+
+    final ExternalPublishRootExtension extension() {
+        return extension;
+    }
+
+    final Provider<PublishingMetrics> publishingMetrics() {
+        return publishingMetrics;
+    }
+
+    final Provider<PreviousAttempts> previousAttempts() {
+        return previousAttempts;
+    }
+
+    /** Whether this build publishes to Sonatype, either because it is a tag build or because it is a dry run. */
+    final Provider<Boolean> releasing() {
+        return releasing;
+    }
+
+    /** Splits the publications of the build between the parallel nodes of a CircleCI job. */
+    final PublicationShards publicationShards() {
+        return publicationShards;
+    }
+
+    /** Whether the parallel nodes of this CircleCI job all upload into the one staging repository. */
+    final Provider<Boolean> sharingStagingRepository() {
+        return sharingStagingRepository;
+    }
+
+    /**
+     * Whether the artifacts of publications are signed, checksummed and uploaded in a single pass by the
+     * {@code uploadToSonatype} tasks, rather than by signing tasks and Gradle's own publishing.
+     */
+    final Provider<Boolean> singlePassUploads() {
+        return singlePassUploads;
+    }
+
+    /**
+     * Whether this node opens, closes and releases the staging repository, and publishes anything that cannot be
+     * split between nodes. Always true unless {@link #sharingStagingRepository()}.
+     */
+    final Provider<Boolean> leadNode() {
+        return leadNode;
+    }
+
+    /** The id of the staging repository this build uploads to, only known once it has been opened or found. */
+    final Provider<String> stagingRepositoryId() {
+        return stagingRepositoryId;
+    }
+
+    final TaskProvider<Task> closeStagingRepository() {
+        return rootProject.getTasks().named("closeSonatypeStagingRepository");
+    }
+
+    final Provider<SonatypeUploadService> sonatypeUploadService() {
+        return sonatypeUploadService;
+    }
+
+    /** Closes and releases the staging repository in a worker, when that has been turned on. */
+    final TaskProvider<CloseAndReleaseStagingRepositoryTask> closeAndReleaseInBackground() {
+        return closeAndReleaseInBackground;
+    }
+
+    final TaskProvider<?> awaitOtherNodes() {
+        return awaitOtherNodes;
+    }
+
+    /** Depends on checking every publication of the build against the rules of Maven Central. */
+    final TaskProvider<?> validatePublications() {
+        return validatePublications;
+    }
+
+    /** Starts opening the staging repository in the background, which anything slow should run after. */
+    final TaskProvider<?> startStagingRepositoryEarly() {
+        return startStagingRepositoryEarly;
+    }
+
+    /** Needs telling when uploads start, as until then it drops the staging repository it opened at the end. */
+    final Provider<EarlyStagingRepository> earlyStagingRepository() {
+        return earlyStagingRepository;
+    }
+
+    final OurEnvironmentVariables environmentVariables() {
+        return environmentVariables;
+    }
+
+    /** Where the simulated remote listens during dry runs, once {@link #startSimulatedRemote()} has run. */
+    final Provider<URI> simulatedRemoteUrl() {
+        return simulatedRemoteUrl;
+    }
+
+    final TaskProvider<?> startSimulatedRemote() {
+        return startSimulatedRemote;
+    }
+
+    final TaskProvider<Delete> cleanCentralBundleRepository() {
+        return cleanCentralBundleRepository;
+    }
+
+    final TaskProvider<Zip> bundleCentralPublications() {
+        return bundleCentralPublications;
+    }
+
+    public final Optional<Provider<Task>> sonatypeFinishingTask() {
+        if (!releasing.get()) {
             return Optional.empty();
         }
 
-        return Optional.of(rootProject.getTasks().named("closeAndReleaseSonatypeStagingRepository"));
+        TaskProvider<Task> closeAndReleaseInForeground =
+                rootProject.getTasks().named("closeAndReleaseSonatypeStagingRepository", Task.class);
+        Provider<Task> closeAndRelease = extension
+                .getCloseAndReleaseInBackground()
+                .flatMap(inBackground -> inBackground ? closeAndReleaseInBackground : closeAndReleaseInForeground);
+
+        return Optional.of(extension
+                .getCentralPortalBundle()
+                .flatMap(centralPortalBundle -> centralPortalBundle ? uploadCentralBundle : closeAndRelease));
     }
 }
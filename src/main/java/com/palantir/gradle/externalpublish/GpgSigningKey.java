@@ -16,8 +16,6 @@
 
 package com.palantir.gradle.externalpublish;
 
-import java.nio.charset.StandardCharsets;
-import java.util.Base64;
 import java.util.Optional;
 import org.gradle.api.Project;
 import org.slf4j.Logger;
@@ -27,12 +25,12 @@ final class GpgSigningKey {
     private static final Logger log = LoggerFactory.getLogger(GpgSigningKey.class);
 
     private final String keyId;
-    private final String key;
+    private final String base64Key;
     private final String password;
 
     private GpgSigningKey(String keyId, String base64Key, String password) {
         this.keyId = keyId;
-        this.key = new String(Base64.getDecoder().decode(base64Key), StandardCharsets.UTF_8);
+        this.base64Key = base64Key;
         this.password = password;
     }
 
@@ -40,8 +38,9 @@ final class GpgSigningKey {
         return keyId;
     }
 
-    public String key() {
-        return key;
+    /** The armored key is only decoded and parsed once per build, by {@link SigningKeyService}. */
+    public String base64Key() {
+        return base64Key;
     }
 
     public String password() {
@@ -49,6 +48,10 @@ final class GpgSigningKey {
     }
 
     public static Optional<GpgSigningKey> fromEnv(Project project) {
+        return OurEnvironmentVariables.memoize(project, "gpgSigningKey", () -> readFromEnv(project));
+    }
+
+    private static Optional<GpgSigningKey> readFromEnv(Project project) {
         Optional<String> maybeKeyId = gpgKeyEnvVar(project, "GPG_SIGNING_KEY_ID");
         Optional<String> maybeBase64Key = gpgKeyEnvVar(project, "GPG_SIGNING_KEY");
         Optional<String> maybePassword = gpgKeyEnvVar(project, "GPG_SIGNING_KEY_PASSWORD");
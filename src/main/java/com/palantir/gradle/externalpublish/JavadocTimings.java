@@ -0,0 +1,171 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import org.gradle.api.Action;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * Remembers how long each project's full javadoc took the last time it ran on this machine, so that when PR builds
+ * generate placeholder javadoc instead, the end of the build can say how much time that saved. The timings are kept in
+ * the Gradle user home rather than the build directory, so they survive a fresh checkout, which is what every CI build
+ * starts from. CI only has timings to report from when it caches the Gradle user home between builds.
+ */
+public abstract class JavadocTimings implements BuildService<JavadocTimings.Params>, AutoCloseable {
+    private static final Logger log = Logging.getLogger(JavadocTimings.class);
+
+    private final Map<String, Long> startedNanos = new LinkedHashMap<>();
+    private final Map<String, Long> ranMillis = new LinkedHashMap<>();
+    private final Map<String, Integer> skippedSourceFiles = new LinkedHashMap<>();
+
+    public interface Params extends BuildServiceParameters {
+        RegularFileProperty getTimingsFile();
+    }
+
+    static Provider<JavadocTimings> registerIfAbsent(Project project) {
+        Project rootProject = project.getRootProject();
+        return rootProject
+                .getGradle()
+                .getSharedServices()
+                .registerIfAbsent("externalPublishJavadocTimings", JavadocTimings.class, spec -> {
+                    spec.getParameters()
+                            .getTimingsFile()
+                            .set(new File(
+                                    rootProject.getGradle().getGradleUserHomeDir(),
+                                    "external-publish/javadoc-timings/" + rootProject.getName() + ".properties"));
+                });
+    }
+
+    /** Records how long {@code javadoc} takes whenever it actually generates javadoc. */
+    static void measure(Task javadoc, Provider<JavadocTimings> timings) {
+        javadoc.usesService(timings);
+
+        javadoc.doFirst(new Action<Task>() {
+            @Override
+            public void execute(Task task) {
+                timings.get().started(task.getPath());
+            }
+        });
+
+        javadoc.doLast(new Action<Task>() {
+            @Override
+            public void execute(Task task) {
+                timings.get().finished(task.getPath());
+            }
+        });
+    }
+
+    final synchronized void started(String javadocTaskPath) {
+        startedNanos.put(javadocTaskPath, System.nanoTime());
+    }
+
+    final synchronized void finished(String javadocTaskPath) {
+        Long started = startedNanos.remove(javadocTaskPath);
+        if (started != null) {
+            ranMillis.put(javadocTaskPath, (System.nanoTime() - started) / 1_000_000);
+        }
+    }
+
+    final synchronized void skipped(String javadocTaskPath, int sourceFiles) {
+        skippedSourceFiles.put(javadocTaskPath, sourceFiles);
+    }
+
+    @Override
+    public final synchronized void close() {
+        if (ranMillis.isEmpty() && skippedSourceFiles.isEmpty()) {
+            return;
+        }
+
+        Properties timings = load();
+        ranMillis.forEach((javadocTaskPath, millis) -> timings.setProperty(javadocTaskPath, Long.toString(millis)));
+        if (!ranMillis.isEmpty()) {
+            store(timings);
+        }
+
+        if (skippedSourceFiles.isEmpty()) {
+            return;
+        }
+
+        long savedMillis = 0;
+        int timed = 0;
+        for (String javadocTaskPath : skippedSourceFiles.keySet()) {
+            String millis = timings.getProperty(javadocTaskPath);
+            if (millis != null) {
+                savedMillis += Long.parseLong(millis);
+                timed++;
+            }
+        }
+
+        log.lifecycle(
+                "Generated placeholder javadoc for {} projects instead of documenting {} source files, which saved"
+                        + " {}s going by the last full javadoc of {} of them{}",
+                skippedSourceFiles.size(),
+                skippedSourceFiles.values().stream().mapToInt(Integer::intValue).sum(),
+                String.format("%.1f", savedMillis / 1000d),
+                timed,
+                timed < skippedSourceFiles.size()
+                        ? " (the rest have not had full javadoc on this machine, or with this Gradle user home, yet)"
+                        : "");
+    }
+
+    private Properties load() {
+        Properties timings = new Properties();
+        Path path = timingsPath();
+        if (Files.exists(path)) {
+            try (InputStream in = Files.newInputStream(path)) {
+                timings.load(in);
+            } catch (IOException e) {
+                log.warn("Ignoring unreadable javadoc timings {}", path, e);
+                timings.clear();
+            }
+        }
+        return timings;
+    }
+
+    private void store(Properties timings) {
+        Path path = timingsPath();
+        try {
+            Files.createDirectories(path.getParent());
+            try (OutputStream out = Files.newOutputStream(path)) {
+                timings.store(out, null);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write " + path, e);
+        }
+    }
+
+    private Path timingsPath() {
+        return getParameters().getTimingsFile().get().getAsFile().toPath();
+    }
+}
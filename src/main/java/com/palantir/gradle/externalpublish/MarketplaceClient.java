@@ -0,0 +1,151 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.gradle.api.GradleException;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+/**
+ * A minimal client for uploading plugins to the <a href="https://plugins.jetbrains.com/docs/marketplace/">JetBrains
+ * Marketplace</a>, streaming the plugin zip from disk rather than reading it into memory.
+ */
+final class MarketplaceClient {
+    private final HttpClient httpClient;
+    private final URI baseUrl;
+    private final String authorization;
+
+    MarketplaceClient(URI baseUrl, String token) {
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMinutes(1))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        this.baseUrl = baseUrl.toString().endsWith("/") ? baseUrl : URI.create(baseUrl + "/");
+        this.authorization = "Bearer " + token;
+    }
+
+    /** Uploads the plugin to the channel, where the empty string is the stable channel, returning the response. */
+    HttpResponse<String> upload(Path plugin, String xmlId, String channel) throws IOException, InterruptedException {
+        String boundary = "----external-publish-" + UUID.randomUUID();
+        String fields = field(boundary, "xmlId", xmlId) + field(boundary, "channel", channel);
+        String fileHeader = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + plugin.getFileName() + "\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n";
+        String footer = "\r\n--" + boundary + "--\r\n";
+
+        HttpRequest request = HttpRequest.newBuilder(baseUrl.resolve("plugin/uploadPlugin"))
+                .header("Authorization", authorization)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(BodyPublishers.concat(
+                        BodyPublishers.ofString(fields + fileHeader),
+                        BodyPublishers.ofFile(plugin),
+                        BodyPublishers.ofString(footer)))
+                .build();
+
+        return httpClient.send(request, BodyHandlers.ofString());
+    }
+
+    private static String field(String boundary, String name, String value) {
+        return "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"" + name + "\"\r\n\r\n"
+                + value + "\r\n";
+    }
+
+    /**
+     * The id the Marketplace knows the plugin by, from the {@code plugin.xml} in one of the jars in its {@code lib}
+     * directory. Like IntelliJ, falls back to the plugin's name when it has no id.
+     */
+    static String xmlId(Path plugin) {
+        try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(plugin))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                if (entry.getName().contains("/lib/") && entry.getName().endsWith(".jar")) {
+                    Optional<String> xmlId = xmlIdFromJar(zip);
+                    if (xmlId.isPresent()) {
+                        return xmlId.get();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new GradleException("Failed to read plugin " + plugin, e);
+        }
+        throw new GradleException("Could not find META-INF/plugin.xml in any jar of plugin " + plugin);
+    }
+
+    private static Optional<String> xmlIdFromJar(InputStream jarStream) throws IOException {
+        // Not closing the jar, as that would close the plugin zip it is being read from
+        ZipInputStream jar = new ZipInputStream(jarStream);
+        for (ZipEntry entry = jar.getNextEntry(); entry != null; entry = jar.getNextEntry()) {
+            if (entry.getName().equals("META-INF/plugin.xml")) {
+                return Optional.of(xmlIdFromDescriptor(jar));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static String xmlIdFromDescriptor(InputStream descriptor) throws IOException {
+        Element root;
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            root = factory.newDocumentBuilder()
+                    .parse(new NonClosing(descriptor))
+                    .getDocumentElement();
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Failed to parse META-INF/plugin.xml", e);
+        }
+
+        for (String name : new String[] {"id", "name"}) {
+            for (Node node = root.getFirstChild(); node != null; node = node.getNextSibling()) {
+                if (node instanceof Element
+                        && ((Element) node).getTagName().equals(name)
+                        && !node.getTextContent().isBlank()) {
+                    return node.getTextContent().trim();
+                }
+            }
+        }
+        throw new IOException("META-INF/plugin.xml has neither an <id> nor a <name>");
+    }
+
+    /** Stops the XML parser closing the zip it is reading from. */
+    private static final class NonClosing extends FilterInputStream {
+        private NonClosing(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() {}
+    }
+}
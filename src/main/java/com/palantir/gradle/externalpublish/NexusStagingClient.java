@@ -0,0 +1,308 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish;
+
+import groovy.json.JsonOutput;
+import groovy.json.JsonSlurper;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.gradle.api.GradleException;
+
+/**
+ * Access to the Nexus staging REST API, for following what happens to a staging repository, for opening one ahead of
+ * time, and for closing and releasing one in the background.
+ */
+final class NexusStagingClient {
+    private final HttpClient httpClient;
+    private final URI nexusUrl;
+    private final String authorization;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    NexusStagingClient(URI nexusUrl, String username, String password) {
+        this.httpClient =
+                HttpClient.newBuilder().connectTimeout(Duration.ofMinutes(1)).build();
+        this.nexusUrl = nexusUrl.toString().endsWith("/") ? nexusUrl : URI.create(nexusUrl + "/");
+        this.authorization = "Basic "
+                + Base64.getEncoder().encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** The staging repository, unless it does not exist (anymore, as releasing it drops it). */
+    Optional<StagingRepository> repository(String repositoryId) {
+        HttpResponse<String> response = send("staging/repository/" + repositoryId);
+        if (response.statusCode() == 404) {
+            return Optional.empty();
+        }
+        checkSuccessful(response);
+        return Optional.of(stagingRepository((Map<?, ?>) new JsonSlurper().parseText(response.body())));
+    }
+
+    /** Every staging repository these credentials can see, whichever staging profile it is in. */
+    List<StagingRepository> repositories() {
+        List<?> data = (List<?>) ((Map<?, ?>) get("staging/profile_repositories")).get("data");
+        List<StagingRepository> repositories = new ArrayList<>();
+        for (Object repository : data == null ? Collections.emptyList() : data) {
+            repositories.add(stagingRepository((Map<?, ?>) repository));
+        }
+        return repositories;
+    }
+
+    /** The id of the staging profile for {@code packageGroup}, which is the one with exactly that name. */
+    String stagingProfileId(String packageGroup) {
+        List<?> data = (List<?>) ((Map<?, ?>) get("staging/profiles")).get("data");
+        for (Object profile : data == null ? Collections.emptyList() : data) {
+            Map<?, ?> profileJson = (Map<?, ?>) profile;
+            if (packageGroup.equals(profileJson.get("name"))) {
+                return Objects.toString(profileJson.get("id"));
+            }
+        }
+        throw new GradleException("Failed to find a staging profile for " + packageGroup);
+    }
+
+    /** Opens a new staging repository in the staging profile, returning its id. */
+    String start(String stagingProfileId, String description) {
+        Map<?, ?> data = (Map<?, ?>) ((Map<?, ?>) post(
+                        "staging/profiles/" + stagingProfileId + "/start",
+                        Map.of("data", Map.of("description", description))))
+                .get("data");
+        return Objects.toString(data.get("stagedRepositoryId"));
+    }
+
+    /** Drops the staging repository, along with everything uploaded to it. */
+    void drop(String repositoryId, String description) {
+        post(
+                "staging/bulk/drop",
+                Map.of("data", Map.of("stagedRepositoryIds", List.of(repositoryId), "description", description)));
+    }
+
+    /** Starts closing the staging repository, after which Sonatype checks it against the rules of Maven Central. */
+    void close(String repositoryId, String description) {
+        post(
+                "staging/bulk/close",
+                Map.of("data", Map.of("stagedRepositoryIds", List.of(repositoryId), "description", description)));
+    }
+
+    /** Starts releasing the closed staging repository to Maven Central, dropping it once it has been released. */
+    void release(String repositoryId, String description) {
+        post(
+                "staging/bulk/promote",
+                Map.of(
+                        "data",
+                        Map.of(
+                                "stagedRepositoryIds",
+                                List.of(repositoryId),
+                                "description",
+                                description,
+                                "autoDropAfterRelease",
+                                true)));
+    }
+
+    /** Whether something has been uploaded to {@code path} in the staging repository, without downloading it. */
+    boolean contains(String repositoryId, String path) {
+        HttpResponse<String> response = send(HttpRequest.newBuilder(
+                        nexusUrl.resolve("repositories/" + repositoryId + "/content/" + path))
+                .header("Authorization", authorization)
+                .method("HEAD", BodyPublishers.noBody())
+                .build());
+        if (response.statusCode() == 404) {
+            return false;
+        }
+        checkSuccessful(response);
+        return true;
+    }
+
+    /** What has been uploaded to {@code path} in the staging repository, if anything. Only for small files. */
+    Optional<String> content(String repositoryId, String path) {
+        HttpResponse<String> response = send(HttpRequest.newBuilder(
+                        nexusUrl.resolve("repositories/" + repositoryId + "/content/" + path))
+                .header("Authorization", authorization)
+                .GET()
+                .build());
+        if (response.statusCode() == 404) {
+            return Optional.empty();
+        }
+        checkSuccessful(response);
+        return Optional.of(response.body());
+    }
+
+    private static StagingRepository stagingRepository(Map<?, ?> json) {
+        return new StagingRepository(
+                Objects.toString(json.get("repositoryId"), ""),
+                Objects.toString(json.get("type")),
+                Boolean.TRUE.equals(json.get("transitioning")),
+                Objects.toString(json.get("description"), ""));
+    }
+
+    /** All the events that have happened to the repository so far, oldest first. */
+    List<StagingEvent> events(String repositoryId) {
+        List<StagingEvent> events = new ArrayList<>();
+
+        for (Object activity : (List<?>) get("staging/repository/" + repositoryId + "/activity")) {
+            Map<?, ?> activityJson = (Map<?, ?>) activity;
+            List<?> activityEvents = (List<?>) activityJson.get("events");
+
+            for (Object event : activityEvents == null ? Collections.emptyList() : activityEvents) {
+                Map<?, ?> eventJson = (Map<?, ?>) event;
+                Map<String, String> properties = new LinkedHashMap<>();
+                List<?> propertiesJson = (List<?>) eventJson.get("properties");
+
+                for (Object property : propertiesJson == null ? Collections.emptyList() : propertiesJson) {
+                    Map<?, ?> propertyJson = (Map<?, ?>) property;
+                    properties.put(
+                            Objects.toString(propertyJson.get("name")), Objects.toString(propertyJson.get("value")));
+                }
+
+                events.add(new StagingEvent(
+                        Objects.toString(activityJson.get("name")),
+                        Objects.toString(eventJson.get("name")),
+                        properties));
+            }
+        }
+
+        return events;
+    }
+
+    int requests() {
+        return requests.get();
+    }
+
+    private Object get(String path) {
+        HttpResponse<String> response = send(path);
+        checkSuccessful(response);
+        return new JsonSlurper().parseText(response.body());
+    }
+
+    private Object post(String path, Map<String, ?> body) {
+        HttpResponse<String> response = send(HttpRequest.newBuilder(nexusUrl.resolve(path))
+                .header("Authorization", authorization)
+                .header("Accept", "application/json")
+                .header("Content-Type", "application/json")
+                .POST(BodyPublishers.ofString(JsonOutput.toJson(body)))
+                .build());
+        checkSuccessful(response);
+        return response.body().isBlank() ? null : new JsonSlurper().parseText(response.body());
+    }
+
+    private HttpResponse<String> send(String path) {
+        return send(HttpRequest.newBuilder(nexusUrl.resolve(path))
+                .header("Authorization", authorization)
+                .header("Accept", "application/json")
+                .GET()
+                .build());
+    }
+
+    private HttpResponse<String> send(HttpRequest request) {
+        try {
+            requests.incrementAndGet();
+            return httpClient.send(request, BodyHandlers.ofString());
+        } catch (IOException e) {
+            throw new GradleException("Failed to " + request.method() + " " + request.uri(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while trying to " + request.method() + " " + request.uri(), e);
+        }
+    }
+
+    private static void checkSuccessful(HttpResponse<String> response) {
+        if (response.statusCode() / 100 != 2) {
+            throw new GradleException("Failed to " + response.request().method() + " " + response.uri() + ": HTTP "
+                    + response.statusCode() + " " + response.body());
+        }
+    }
+
+    static final class StagingRepository {
+        private final String id;
+        private final String type;
+        private final boolean transitioning;
+        private final String description;
+
+        StagingRepository(String id, String type, boolean transitioning, String description) {
+            this.id = id;
+            this.type = type;
+            this.transitioning = transitioning;
+            this.description = description;
+        }
+
+        String id() {
+            return id;
+        }
+
+        String type() {
+            return type;
+        }
+
+        boolean transitioning() {
+            return transitioning;
+        }
+
+        String description() {
+            return description;
+        }
+
+        String state() {
+            return transitioning ? type + " (transitioning)" : type;
+        }
+    }
+
+    static final class StagingEvent {
+        private final String activity;
+        private final String name;
+        private final Map<String, String> properties;
+
+        StagingEvent(String activity, String name, Map<String, String> properties) {
+            this.activity = activity;
+            this.name = name;
+            this.properties = properties;
+        }
+
+        String activity() {
+            return activity;
+        }
+
+        String name() {
+            return name;
+        }
+
+        Map<String, String> properties() {
+            return properties;
+        }
+
+        boolean isFailure() {
+            return name.endsWith("Failed");
+        }
+
+        @Override
+        public String toString() {
+            return activity + "/" + name + (properties.isEmpty() ? "" : " " + properties);
+        }
+    }
+}
@@ -17,30 +17,118 @@
 package com.palantir.gradle.externalpublish;
 
 import com.palantir.gradle.utils.environmentvariables.EnvironmentVariables;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.gradle.api.GradleException;
 import org.gradle.api.Project;
+import org.gradle.api.provider.Provider;
 
+/**
+ * The CI environment variables we care about. One snapshot is made per build, held by the
+ * {@link ExternalPublishRootPlugin} of the root project, and shared by every project, so that checking them from every
+ * project and every task does not keep creating new {@link EnvironmentVariables} objects and providers.
+ */
 final class OurEnvironmentVariables {
-    private OurEnvironmentVariables() {}
+    private final EnvironmentVariables environmentVariables;
+    private final Map<String, Provider<String>> envVars = new ConcurrentHashMap<>();
+    private final Map<String, Object> memoized = new ConcurrentHashMap<>();
+    private final Provider<Boolean> tagBuild;
+    private final Provider<Boolean> fork;
+    private final Provider<Boolean> circleNode0OrLocal;
+    private final Provider<Integer> circleNodeIndex;
+    private final Provider<Integer> circleNodeTotal;
+
+    OurEnvironmentVariables(Project rootProject) {
+        this.environmentVariables = rootProject.getObjects().newInstance(EnvironmentVariables.class);
+        this.tagBuild = envVar("CIRCLE_TAG").map(tag -> !tag.isEmpty()).orElse(false);
+        this.fork = envVar("CIRCLE_PR_USERNAME").map(_username -> true).orElse(false);
+        this.circleNode0OrLocal = environmentVariables.isCircleNode0OrLocal();
+        this.circleNodeIndex = envVar("CIRCLE_NODE_INDEX").map(Integer::parseInt).orElse(0);
+        this.circleNodeTotal = envVar("CIRCLE_NODE_TOTAL").map(Integer::parseInt).orElse(1);
+    }
+
+    Provider<String> envVar(String envVar) {
+        return envVars.computeIfAbsent(envVar, environmentVariables::envVarOrFromTestingProperty);
+    }
+
+    Provider<Boolean> tagBuild() {
+        return tagBuild;
+    }
+
+    Provider<Boolean> fork() {
+        return fork;
+    }
+
+    Provider<Integer> circleNodeIndex() {
+        return circleNodeIndex;
+    }
+
+    Provider<Integer> circleNodeTotal() {
+        return circleNodeTotal;
+    }
+
+    /**
+     * The snapshot of the root plugin, which is always applied first. The root plugin itself uses its snapshot
+     * directly, as Gradle only adds a plugin to the project once it has finished applying.
+     */
+    private static OurEnvironmentVariables snapshot(Project project) {
+        ExternalPublishRootPlugin rootPlugin =
+                project.getRootProject().getPlugins().findPlugin(ExternalPublishRootPlugin.class);
+        if (rootPlugin == null) {
+            throw new GradleException("The com.palantir.external-publish plugin must be applied to the root project");
+        }
+        return rootPlugin.environmentVariables();
+    }
 
     static Optional<String> envVarOrFromTestingProperty(Project project, String envVar) {
-        EnvironmentVariables environmentVariables = environmentVariables(project);
+        return Optional.ofNullable(envVar(project, envVar).getOrNull());
+    }
 
-        return Optional.ofNullable(
-                environmentVariables.envVarOrFromTestingProperty(envVar).getOrNull());
+    /** Lazy version of {@link #envVarOrFromTestingProperty(Project, String)}, the same provider for the whole build. */
+    static Provider<String> envVar(Project project, String envVar) {
+        return snapshot(project).envVar(envVar);
     }
 
     static boolean isTagBuild(Project project) {
-        return envVarOrFromTestingProperty(project, "CIRCLE_TAG")
-                .filter(tag -> !tag.isEmpty())
-                .isPresent();
+        return tagBuild(project).get();
+    }
+
+    /** Lazy version of {@link #isTagBuild(Project)} that can be safely captured in task actions and specs. */
+    static Provider<Boolean> tagBuild(Project project) {
+        return snapshot(project).tagBuild();
     }
 
     static boolean isFork(Project project) {
-        return envVarOrFromTestingProperty(project, "CIRCLE_PR_USERNAME").isPresent();
+        return fork(project).get();
+    }
+
+    static Provider<Boolean> fork(Project project) {
+        return snapshot(project).fork();
+    }
+
+    static Provider<Boolean> circleNode0OrLocal(Project project) {
+        return snapshot(project).circleNode0OrLocal;
+    }
+
+    /** Which of the parallel nodes of a CircleCI job this is, counting from 0. Always 0 outside CircleCI. */
+    static Provider<Integer> circleNodeIndex(Project project) {
+        return snapshot(project).circleNodeIndex();
+    }
+
+    /** How many parallel nodes this CircleCI job has. Always 1 outside CircleCI. */
+    static Provider<Integer> circleNodeTotal(Project project) {
+        return snapshot(project).circleNodeTotal();
+    }
+
+    /** Works something out from the environment only once per build, however many projects ask for it. */
+    @SuppressWarnings("unchecked")
+    static <T> T memoize(Project project, String key, Supplier<T> supplier) {
+        return (T) snapshot(project).memoized.computeIfAbsent(key, _ignored -> supplier.get());
     }
 
     static EnvironmentVariables environmentVariables(Project project) {
-        return project.getObjects().newInstance(EnvironmentVariables.class);
+        return snapshot(project).environmentVariables;
     }
 }
@@ -0,0 +1,152 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a standard, single member, gzip file using every core, in the same way as pigz. The input is split into fixed
+ * size blocks which are deflated in parallel, each primed with the last 32KiB of the block before it so the compression
+ * ratio barely suffers, then joined with sync flushes. As the block boundaries never depend on the number of threads
+ * or on timing, the output is byte-for-byte identical between runs and machines.
+ */
+final class ParallelGzip {
+    private static final int BLOCK_SIZE = 128 * 1024;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    // No file name and no modification time, so the output only depends on the input
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final byte[] NO_BLOCK = new byte[0];
+
+    private ParallelGzip() {}
+
+    static void compress(Path source, Path destination, int threads) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "parallel-gzip");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try (InputStream in = Files.newInputStream(source);
+                OutputStream out = new BufferedOutputStream(Files.newOutputStream(destination), BLOCK_SIZE)) {
+            out.write(HEADER);
+
+            CRC32 crc = new CRC32();
+            long size = 0;
+            // Bounds how much of the input is held in memory, however big it is
+            Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+            byte[] previous = NO_BLOCK;
+            byte[] block = in.readNBytes(BLOCK_SIZE);
+
+            while (true) {
+                byte[] next = in.readNBytes(BLOCK_SIZE);
+                boolean last = next.length == 0;
+
+                crc.update(block);
+                size += block.length;
+
+                byte[] toDeflate = block;
+                byte[] dictionary = previous;
+                inFlight.addLast(executor.submit(() -> deflate(toDeflate, dictionary, last)));
+
+                if (inFlight.size() >= threads * 2) {
+                    out.write(await(inFlight.removeFirst()));
+                }
+
+                if (last) {
+                    break;
+                }
+
+                previous = block;
+                block = next;
+            }
+
+            while (!inFlight.isEmpty()) {
+                out.write(await(inFlight.removeFirst()));
+            }
+
+            writeIntLittleEndian(out, (int) crc.getValue());
+            writeIntLittleEndian(out, (int) size);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static byte[] deflate(byte[] block, byte[] previousBlock, boolean last) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            int dictionaryLength = Math.min(DICTIONARY_SIZE, previousBlock.length);
+            if (dictionaryLength > 0) {
+                deflater.setDictionary(previousBlock, previousBlock.length - dictionaryLength, dictionaryLength);
+            }
+            deflater.setInput(block);
+
+            ByteArrayOutputStream deflated = new ByteArrayOutputStream(block.length / 2 + 64);
+            byte[] buffer = new byte[16 * 1024];
+
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    deflated.write(buffer, 0, deflater.deflate(buffer));
+                }
+            } else {
+                // A sync flush ends on a byte boundary without marking the stream as finished, so the next block's
+                // output can be appended straight after this one
+                int written;
+                do {
+                    written = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    deflated.write(buffer, 0, written);
+                } while (written == buffer.length);
+            }
+
+            return deflated.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] await(Future<byte[]> deflatedBlock) throws IOException {
+        try {
+            return deflatedBlock.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to compress block", e.getCause());
+        }
+    }
+
+    private static void writeIntLittleEndian(OutputStream out, int value) throws IOException {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+    }
+}
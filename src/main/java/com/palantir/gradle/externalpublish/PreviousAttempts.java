@@ -0,0 +1,172 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish;
+
+import com.palantir.gradle.externalpublish.NexusStagingClient.StagingRepository;
+import io.github.gradlenexus.publishplugin.NexusRepository;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * Works out from Sonatype itself whether a previous attempt at this tag build left its staging repository open, and
+ * which publications it had already finished uploading there, so that rerunning a tag build that failed partway
+ * through carries on in the same staging repository rather than starting all over again. Nothing is remembered
+ * locally, so this works just the same for reruns that start from a fresh checkout, like CircleCI's.
+ */
+public abstract class PreviousAttempts implements BuildService<PreviousAttempts.Params> {
+    private static final Logger log = Logging.getLogger(PreviousAttempts.class);
+
+    private Optional<StagingRepository> reusableStagingRepository;
+    private NexusStagingClient client;
+
+    public interface Params extends BuildServiceParameters {
+        /** The description of the staging repositories opened for this version, which every attempt shares. */
+        Property<String> getStagingRepositoryDescription();
+
+        Property<URI> getNexusUrl();
+
+        Property<String> getUsername();
+
+        Property<String> getPassword();
+
+        /** Whether to carry on in a staging repository opened by a previous attempt. */
+        Property<Boolean> getCarryOnFromPreviousAttempts();
+    }
+
+    static Provider<PreviousAttempts> registerIfAbsent(
+            Project rootProject,
+            NexusRepository sonatypeRepository,
+            Provider<String> stagingRepositoryDescription,
+            Provider<Boolean> sharingStagingRepository) {
+        return rootProject
+                .getGradle()
+                .getSharedServices()
+                .registerIfAbsent("externalPublishPreviousAttempts", PreviousAttempts.class, spec -> {
+                    spec.getParameters().getStagingRepositoryDescription().set(stagingRepositoryDescription);
+                    spec.getParameters().getNexusUrl().set(sonatypeRepository.getNexusUrl());
+                    spec.getParameters().getUsername().set(sonatypeRepository.getUsername());
+                    spec.getParameters().getPassword().set(sonatypeRepository.getPassword());
+                    // Nodes sharing a staging repository must all upload into the one this attempt opened
+                    spec.getParameters()
+                            .getCarryOnFromPreviousAttempts()
+                            .set(sharingStagingRepository.map(sharing -> !sharing));
+                });
+    }
+
+    /**
+     * The id of the staging repository a previous attempt at publishing this version opened, if there was one and it
+     * is still open. Worked out once, before this attempt opens a staging repository of its own.
+     */
+    final synchronized Optional<String> reusableStagingRepository() {
+        if (reusableStagingRepository == null) {
+            reusableStagingRepository = findReusableStagingRepository();
+        }
+        return reusableStagingRepository.map(StagingRepository::id);
+    }
+
+    private Optional<StagingRepository> findReusableStagingRepository() {
+        if (!getParameters().getCarryOnFromPreviousAttempts().get()) {
+            return Optional.empty();
+        }
+
+        String description = getParameters().getStagingRepositoryDescription().get();
+        try {
+            Optional<StagingRepository> repository = client().repositories().stream()
+                    .filter(candidate -> candidate.description().equals(description))
+                    .filter(candidate -> candidate.type().equals("open") && !candidate.transitioning())
+                    .findFirst();
+
+            repository.ifPresent(open -> log.lifecycle(
+                    "Carrying on uploading to staging repository {} from a previous attempt", open.id()));
+            return repository;
+        } catch (RuntimeException e) {
+            log.lifecycle("Could not look for a staging repository from a previous attempt, so opening a new one", e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Whether a previous attempt finished uploading every one of {@code artifacts}, by their path relative to the root
+     * of the staging repository, into the staging repository being reused, along with their signatures when
+     * {@code signed}. A file only counts once its checksum is there too, as Maven Central needs both, and an artifact
+     * only counts while that checksum matches the one built now, so an artifact that was rebuilt differently since
+     * is uploaded again.
+     */
+    final boolean isUploaded(Map<String, File> artifacts, boolean signed) {
+        Optional<String> repositoryId = reusableStagingRepository();
+        if (repositoryId.isEmpty() || artifacts.isEmpty()) {
+            return false;
+        }
+
+        return artifacts.entrySet().stream().allMatch(artifact -> {
+            String path = artifact.getKey();
+            return client().contains(repositoryId.get(), path)
+                    && client().content(repositoryId.get(), path + ".sha1")
+                            // Just the hash, though some tools follow it with the file name
+                            .map(uploaded -> uploaded.trim().split("\\s+")[0])
+                            .map(uploadedSha1 -> uploadedSha1.equalsIgnoreCase(sha1(artifact.getValue())))
+                            .orElse(false)
+                    // Signatures differ every time they are made, so these only need to be there
+                    && (!signed
+                            || (client().contains(repositoryId.get(), path + ".asc")
+                                    && client().contains(repositoryId.get(), path + ".asc.sha1")));
+        });
+    }
+
+    private static String sha1(File file) {
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + file, e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new GradleException("No SHA-1 in this JVM", e);
+        }
+    }
+
+    private synchronized NexusStagingClient client() {
+        if (client == null) {
+            client = new NexusStagingClient(
+                    getParameters().getNexusUrl().get(),
+                    getParameters().getUsername().get(),
+                    getParameters().getPassword().get());
+        }
+        return client;
+    }
+}
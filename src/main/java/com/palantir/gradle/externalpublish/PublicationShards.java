@@ -0,0 +1,97 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import org.gradle.api.Project;
+import org.gradle.api.provider.Provider;
+
+/**
+ * Splits the publications of the whole build between the parallel nodes of a CircleCI job, so that each node only signs
+ * and uploads its share. Every node configures the same build, so dealing out the publications in order of their
+ * project path and name gives every node the same, evenly sized, shards without the nodes having to talk to each other.
+ */
+final class PublicationShards {
+    // Sorted, so every node deals the publications out in the same order
+    private final Map<String, Provider<String>> metadataPaths = new ConcurrentSkipListMap<>();
+    private final Project rootProject;
+    private final Provider<Boolean> enabled;
+    private final Provider<Integer> nodeIndex;
+    private final Provider<Integer> nodeTotal;
+    // Where each publication is in the order they are dealt out in, worked out once every publication is registered
+    private Map<String, Integer> indices;
+
+    PublicationShards(
+            Project rootProject, OurEnvironmentVariables environmentVariables, Provider<Boolean> shardAcrossNodes) {
+        this.rootProject = rootProject;
+        this.nodeIndex = environmentVariables.circleNodeIndex();
+        this.nodeTotal = environmentVariables.circleNodeTotal();
+        this.enabled = shardAcrossNodes.zip(nodeTotal, (shard, total) -> shard && total > 1);
+    }
+
+    /**
+     * Adds a publication to be sharded, along with the path of its maven-metadata.xml in a Maven repository, which
+     * Gradle always uploads last, once everything else in the publication has been uploaded.
+     */
+    synchronized void register(String publicationKey, Provider<String> metadataPath) {
+        metadataPaths.put(publicationKey, metadataPath);
+        indices = null;
+    }
+
+    /** Whether publications are being split between nodes at all. */
+    Provider<Boolean> enabled() {
+        return enabled;
+    }
+
+    Provider<Integer> nodeIndex() {
+        return nodeIndex;
+    }
+
+    /** Whether this node publishes the given publication. Always true when not sharding. */
+    Provider<Boolean> isPublishedByThisNode(String publicationKey) {
+        return rootProject.provider(() -> !enabled.get() || nodeOf(publicationKey) == nodeIndex.get());
+    }
+
+    /** Where the maven-metadata.xml of every publication that some other node publishes will end up. */
+    Provider<List<String>> metadataPathsFromOtherNodes() {
+        return rootProject.provider(() -> {
+            List<String> paths = new ArrayList<>();
+            if (!enabled.get()) {
+                return paths;
+            }
+
+            metadataPaths.forEach((publicationKey, metadataPath) -> {
+                if (nodeOf(publicationKey) != nodeIndex.get()) {
+                    paths.add(metadataPath.get());
+                }
+            });
+            return paths;
+        });
+    }
+
+    private synchronized int nodeOf(String publicationKey) {
+        if (indices == null) {
+            indices = new HashMap<>();
+            metadataPaths.keySet().forEach(key -> indices.put(key, indices.size()));
+        }
+        return indices.getOrDefault(publicationKey, -1) % nodeTotal.get();
+    }
+}
@@ -0,0 +1,441 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish;
+
+import groovy.json.JsonOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import org.gradle.api.Action;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * Collects how long every signing, publishing and staging task took, how many bytes it handled and how many requests
+ * it made, then writes them out as JSON and prints a short summary at the end of the build, including how much time was
+ * saved by tasks overlapping and how high the heap got. The requests and retries made by Gradle's own maven
+ * publishing are not visible to us, so these are only counted for the requests this plugin makes itself.
+ */
+public abstract class PublishingMetrics implements BuildService<PublishingMetrics.Params>, AutoCloseable {
+    private static final Logger log = Logging.getLogger(PublishingMetrics.class);
+
+    private final Map<String, TaskMetrics> tasks = new LinkedHashMap<>();
+    // The daemon outlives the build, and other builds and tools may watch the same peaks, so rather than resetting
+    // them, remember how high they already were
+    private final long peakHeapBytesBeforePublishing = peakHeapBytes();
+
+    public interface Params extends BuildServiceParameters {
+        RegularFileProperty getReportFile();
+    }
+
+    enum Kind {
+        SIGN,
+        PUBLISH,
+        STAGING
+    }
+
+    static Provider<PublishingMetrics> registerIfAbsent(Project rootProject) {
+        return rootProject
+                .getGradle()
+                .getSharedServices()
+                .registerIfAbsent("externalPublishMetrics", PublishingMetrics.class, spec -> {
+                    spec.getParameters()
+                            .getReportFile()
+                            .set(rootProject
+                                    .getLayout()
+                                    .getBuildDirectory()
+                                    .file("external-publish/publishing-metrics.json"));
+                });
+    }
+
+    /**
+     * Measures {@code task} whenever it actually runs. {@code publication} and {@code repository} may be null when the
+     * task deals with all publications, or with no repository.
+     */
+    static void measure(
+            Task task, Provider<PublishingMetrics> metrics, Kind kind, String publication, String repository) {
+        task.usesService(metrics);
+
+        task.doFirst(new Action<Task>() {
+            @Override
+            public void execute(Task runningTask) {
+                long bytes = 0;
+                int files = 0;
+                for (File file : runningTask.getInputs().getFiles()) {
+                    if (file.isFile()) {
+                        bytes += file.length();
+                        files++;
+                    }
+                }
+
+                metrics.get().started(runningTask.getPath(), kind, publication, repository, bytes, files);
+            }
+        });
+
+        task.doLast(new Action<Task>() {
+            @Override
+            public void execute(Task runningTask) {
+                metrics.get().finished(runningTask.getPath());
+            }
+        });
+    }
+
+    final synchronized void started(
+            String taskPath, Kind kind, String publication, String repository, long bytes, int files) {
+        tasks.put(taskPath, new TaskMetrics(taskPath, kind, publication, repository, bytes, files, System.nanoTime()));
+    }
+
+    final synchronized void finished(String taskPath) {
+        TaskMetrics task = tasks.get(taskPath);
+        if (task != null) {
+            task.durationNanos = System.nanoTime() - task.startNanos;
+        }
+    }
+
+    final synchronized void requests(String taskPath, int requests, int retries) {
+        TaskMetrics task = tasks.get(taskPath);
+        if (task != null) {
+            task.requests += requests;
+            task.retries += retries;
+        }
+    }
+
+    @Override
+    public final synchronized void close() {
+        if (tasks.isEmpty()) {
+            return;
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        List<Object> taskReports = new ArrayList<>();
+        tasks.values().forEach(task -> taskReports.add(task.toJson()));
+        report.put("tasks", taskReports);
+        report.put("publications", toJson(totalsBy(task -> task.publication)));
+        report.put("repositories", toJson(totalsBy(task -> task.repository)));
+        report.put("kinds", toJson(totalsBy(task -> task.kind.name().toLowerCase(Locale.ROOT))));
+        report.put("overlap", overlap().toJson());
+        uploads().ifPresent(uploads -> report.put("uploads", uploads.toJson()));
+        Heap heap = heap();
+        report.put("heap", heap.toJson());
+
+        Path reportPath = getParameters().getReportFile().get().getAsFile().toPath();
+        try {
+            Files.createDirectories(reportPath.getParent());
+            Files.writeString(reportPath, JsonOutput.prettyPrint(JsonOutput.toJson(report)), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write publishing metrics to " + reportPath, e);
+        }
+
+        log.lifecycle("Publishing metrics (full report in {}):", reportPath);
+        totalsBy(task -> task.kind.name().toLowerCase(Locale.ROOT))
+                .forEach((kind, totals) -> log.lifecycle("  {}: {}", kind, totals.summary()));
+        totalsBy(task -> task.repository)
+                .forEach((repository, totals) -> log.lifecycle("  to {}: {}", repository, totals.summary()));
+        log.lifecycle("  overall: {}", overlap().summary());
+        uploads().ifPresent(uploads -> log.lifecycle("  uploads: {}", uploads.summary()));
+        log.lifecycle("  heap: {}", heap.summary());
+    }
+
+    /**
+     * How high the heap has got in this daemon, and how high it had got before this build started publishing.
+     * Artifacts are streamed through fixed-size buffers, so publishing bigger ones should not push the peak higher.
+     */
+    private Heap heap() {
+        Heap heap = new Heap();
+        heap.peakBytes = peakHeapBytes();
+        heap.peakBytesBeforePublishing = peakHeapBytesBeforePublishing;
+        heap.maxBytes = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getMax();
+        return heap;
+    }
+
+    /** Summed over the heap's memory pools, whose peaks need not coincide, so it can only be overestimated. */
+    private static long peakHeapBytes() {
+        long peakBytes = 0;
+        for (MemoryPoolMXBean pool : heapPools()) {
+            peakBytes += pool.getPeakUsage().getUsed();
+        }
+        return peakBytes;
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                heapPools.add(pool);
+            }
+        }
+        return heapPools;
+    }
+
+    /** How long the publishing took from start to finish, and for how much of that only the last one was running. */
+    private Optional<Uploads> uploads() {
+        Uploads uploads = null;
+        for (TaskMetrics task : tasks.values()) {
+            if (task.kind != Kind.PUBLISH || task.durationNanos == null) {
+                continue;
+            }
+
+            long end = task.startNanos + task.durationNanos;
+            if (uploads == null) {
+                uploads = new Uploads(task, task.startNanos, end);
+            } else if (end > uploads.lastEndNanos) {
+                uploads.othersEndNanos = Math.max(uploads.othersEndNanos, uploads.lastEndNanos);
+                uploads.last = task;
+                uploads.lastEndNanos = end;
+            } else {
+                uploads.othersEndNanos = Math.max(uploads.othersEndNanos, end);
+            }
+            uploads.firstStartNanos = Math.min(uploads.firstStartNanos, task.startNanos);
+        }
+        return Optional.ofNullable(uploads);
+    }
+
+    /** How much of the time spent publishing overlapped, from when each task that succeeded started and finished. */
+    private Overlap overlap() {
+        List<long[]> intervals = new ArrayList<>();
+        for (TaskMetrics task : tasks.values()) {
+            if (task.durationNanos != null) {
+                intervals.add(new long[] {task.startNanos, task.startNanos + task.durationNanos});
+            }
+        }
+        intervals.sort(Comparator.comparingLong(interval -> interval[0]));
+
+        Overlap overlap = new Overlap();
+        long coveredUntil = Long.MIN_VALUE;
+        for (long[] interval : intervals) {
+            overlap.serialNanos += interval[1] - interval[0];
+            if (interval[1] > coveredUntil) {
+                overlap.wallClockNanos += interval[1] - Math.max(interval[0], coveredUntil);
+                coveredUntil = interval[1];
+            }
+        }
+        return overlap;
+    }
+
+    private Map<String, Totals> totalsBy(Function<TaskMetrics, String> key) {
+        Map<String, Totals> totals = new LinkedHashMap<>();
+        for (TaskMetrics task : tasks.values()) {
+            String name = key.apply(task);
+            if (name != null) {
+                totals.computeIfAbsent(name, _ignored -> new Totals()).add(task);
+            }
+        }
+        return totals;
+    }
+
+    private static Map<String, Object> toJson(Map<String, Totals> totals) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        totals.forEach((name, total) -> json.put(name, total.toJson()));
+        return json;
+    }
+
+    private static long bytesPerSecond(long bytes, long nanos) {
+        return nanos == 0 ? 0 : (long) (bytes / (nanos / 1_000_000_000d));
+    }
+
+    private static final class TaskMetrics {
+        private final String taskPath;
+        private final Kind kind;
+        private final String publication;
+        private final String repository;
+        private final long bytes;
+        private final int files;
+        private final long startNanos;
+        // Stays null if the task failed
+        private Long durationNanos;
+        private int requests;
+        private int retries;
+
+        TaskMetrics(
+                String taskPath,
+                Kind kind,
+                String publication,
+                String repository,
+                long bytes,
+                int files,
+                long startNanos) {
+            this.taskPath = taskPath;
+            this.kind = kind;
+            this.publication = publication;
+            this.repository = repository;
+            this.bytes = bytes;
+            this.files = files;
+            this.startNanos = startNanos;
+        }
+
+        Map<String, Object> toJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("task", taskPath);
+            json.put("kind", kind.name().toLowerCase(Locale.ROOT));
+            json.put("publication", publication);
+            json.put("repository", repository);
+            json.put("succeeded", durationNanos != null);
+            json.put("bytes", bytes);
+            json.put("files", files);
+            json.put("durationMillis", durationNanos == null ? null : durationNanos / 1_000_000);
+            json.put("bytesPerSecond", durationNanos == null ? null : bytesPerSecond(bytes, durationNanos));
+            json.put("requests", requests);
+            json.put("retries", retries);
+            return json;
+        }
+    }
+
+    private static final class Overlap {
+        // The time the tasks would have taken one after the other, and the time they actually took between them
+        private long serialNanos;
+        private long wallClockNanos;
+
+        Map<String, Object> toJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("serialMillis", serialNanos / 1_000_000);
+            json.put("wallClockMillis", wallClockNanos / 1_000_000);
+            json.put("savedMillis", (serialNanos - wallClockNanos) / 1_000_000);
+            return json;
+        }
+
+        String summary() {
+            return String.format(
+                    "%.1fs one after the other, took %.1fs of wall-clock time, saving %.1fs by overlapping",
+                    serialNanos / 1_000_000_000d,
+                    wallClockNanos / 1_000_000_000d,
+                    (serialNanos - wallClockNanos) / 1_000_000_000d);
+        }
+    }
+
+    private static final class Uploads {
+        private TaskMetrics last;
+        private long firstStartNanos;
+        private long lastEndNanos;
+        private long othersEndNanos = Long.MIN_VALUE;
+
+        Uploads(TaskMetrics first, long firstStartNanos, long firstEndNanos) {
+            this.last = first;
+            this.firstStartNanos = firstStartNanos;
+            this.lastEndNanos = firstEndNanos;
+        }
+
+        long makespanNanos() {
+            return lastEndNanos - firstStartNanos;
+        }
+
+        long lastAloneNanos() {
+            return lastEndNanos - Math.max(last.startNanos, othersEndNanos);
+        }
+
+        Map<String, Object> toJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("makespanMillis", makespanNanos() / 1_000_000);
+            json.put("lastTask", last.taskPath);
+            json.put("lastAloneMillis", lastAloneNanos() / 1_000_000);
+            return json;
+        }
+
+        String summary() {
+            return String.format(
+                    "%.1fs from the first starting to the last finishing, with %s running on its own for the last"
+                            + " %.1fs",
+                    makespanNanos() / 1_000_000_000d,
+                    last.taskPath,
+                    lastAloneNanos() / 1_000_000_000d);
+        }
+    }
+
+    private static final class Heap {
+        private long peakBytes;
+        private long peakBytesBeforePublishing;
+        // Negative when the heap has no maximum
+        private long maxBytes;
+
+        Map<String, Object> toJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("peakBytes", peakBytes);
+            json.put("peakBytesBeforePublishing", peakBytesBeforePublishing);
+            json.put("maxBytes", maxBytes < 0 ? null : maxBytes);
+            return json;
+        }
+
+        String summary() {
+            String peak = maxBytes < 0
+                    ? String.format("peaked at %.1f MB", peakBytes / 1_000_000d)
+                    : String.format(
+                            "peaked at %.1f MB of at most %.1f MB", peakBytes / 1_000_000d, maxBytes / 1_000_000d);
+            return peakBytes > peakBytesBeforePublishing
+                    ? String.format(
+                            "%s, %.1f MB higher than before publishing",
+                            peak, (peakBytes - peakBytesBeforePublishing) / 1_000_000d)
+                    : peak + ", no higher than before publishing";
+        }
+    }
+
+    private static final class Totals {
+        private int tasks;
+        private long bytes;
+        private long durationNanos;
+        private int requests;
+        private int retries;
+
+        void add(TaskMetrics task) {
+            tasks++;
+            bytes += task.bytes;
+            durationNanos += task.durationNanos == null ? 0 : task.durationNanos;
+            requests += task.requests;
+            retries += task.retries;
+        }
+
+        Map<String, Object> toJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("tasks", tasks);
+            json.put("bytes", bytes);
+            json.put("durationMillis", durationNanos / 1_000_000);
+            json.put("bytesPerSecond", bytesPerSecond(bytes, durationNanos));
+            json.put("requests", requests);
+            json.put("retries", retries);
+            return json;
+        }
+
+        String summary() {
+            return String.format(
+                    "%d tasks, %.1f MB in %.1fs (%.1f MB/s), %d requests, %d retries",
+                    tasks,
+                    bytes / 1_000_000d,
+                    durationNanos / 1_000_000_000d,
+                    bytesPerSecond(bytes, durationNanos) / 1_000_000d,
+                    requests,
+                    retries);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish;
+
+import com.palantir.gradle.externalpublish.NexusStagingClient.StagingRepository;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+
+/**
+ * Lets the parallel nodes of a sharded CircleCI job meet up in one staging repository, using nothing but the staging
+ * repository itself: the other nodes wait for the lead node to open it, and the lead node waits for the other nodes'
+ * publications to turn up in it before closing it.
+ */
+final class SharedStagingRepository {
+    private static final Duration INITIAL_POLL_INTERVAL = Duration.ofSeconds(1);
+    private static final Duration MAX_POLL_INTERVAL = Duration.ofSeconds(30);
+    // The other nodes build and sign their share before they upload, which can take a good while on big builds
+    private static final Duration MAX_WAIT = Duration.ofMinutes(60);
+
+    /** Waits for the lead node to open the staging repository with the given description. */
+    static void awaitOpened(NexusStagingClient client, String description, Logger logger) {
+        Backoff backoff = new Backoff(INITIAL_POLL_INTERVAL, MAX_POLL_INTERVAL);
+        Instant deadline = Instant.now().plus(MAX_WAIT);
+        logger.lifecycle("Waiting for the lead node to open staging repository '{}'", description);
+
+        while (true) {
+            Optional<StagingRepository> opened = client.repositories().stream()
+                    .filter(repository -> repository.description().equals(description))
+                    .filter(repository -> repository.type().equals("open") && !repository.transitioning())
+                    .findFirst();
+
+            if (opened.isPresent()) {
+                logger.lifecycle("Uploading to staging repository {} opened by the lead node", opened.get().id());
+                return;
+            }
+
+            sleepUntilNextPoll(backoff, deadline, "the lead node to open staging repository '" + description + "'");
+        }
+    }
+
+    /**
+     * Waits for the maven-metadata.xml at every one of {@code metadataPaths} to have been uploaded, which Gradle does
+     * once everything else in a publication has been uploaded.
+     */
+    static void awaitPublications(
+            NexusStagingClient client, String repositoryId, List<String> metadataPaths, Logger logger) {
+        Backoff backoff = new Backoff(INITIAL_POLL_INTERVAL, MAX_POLL_INTERVAL);
+        Instant deadline = Instant.now().plus(MAX_WAIT);
+        List<String> remaining = new ArrayList<>(metadataPaths);
+
+        while (true) {
+            int before = remaining.size();
+            remaining.removeIf(metadataPath -> client.contains(repositoryId, metadataPath));
+
+            if (remaining.isEmpty()) {
+                logger.lifecycle(
+                        "All {} publications from other nodes are in staging repository {}",
+                        metadataPaths.size(),
+                        repositoryId);
+                return;
+            }
+
+            if (remaining.size() != before) {
+                logger.lifecycle(
+                        "Waiting for {} of {} publications from other nodes to be uploaded to staging repository {}",
+                        remaining.size(),
+                        metadataPaths.size(),
+                        repositoryId);
+                backoff.reset();
+            }
+
+            sleepUntilNextPoll(backoff, deadline, "other nodes to upload " + remaining);
+        }
+    }
+
+    private static void sleepUntilNextPoll(Backoff backoff, Instant deadline, String waitingFor) {
+        if (Instant.now().isAfter(deadline)) {
+            throw new GradleException("Gave up after " + MAX_WAIT.toMinutes() + " minutes waiting for " + waitingFor);
+        }
+
+        try {
+            backoff.sleep();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while waiting for " + waitingFor, e);
+        }
+    }
+
+    private SharedStagingRepository() {}
+}
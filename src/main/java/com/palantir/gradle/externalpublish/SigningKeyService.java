@@ -0,0 +1,251 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import org.bouncycastle.bcpg.ArmoredOutputStream;
+import org.bouncycastle.bcpg.HashAlgorithmTags;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPrivateKey;
+import org.bouncycastle.openpgp.PGPSecretKey;
+import org.bouncycastle.openpgp.PGPSecretKeyRing;
+import org.bouncycastle.openpgp.PGPSecretKeyRingCollection;
+import org.bouncycastle.openpgp.PGPSignature;
+import org.bouncycastle.openpgp.PGPSignatureGenerator;
+import org.bouncycastle.openpgp.PGPUtil;
+import org.bouncycastle.openpgp.operator.bc.BcKeyFingerprintCalculator;
+import org.bouncycastle.openpgp.operator.bc.BcPBESecretKeyDecryptorBuilder;
+import org.bouncycastle.openpgp.operator.bc.BcPGPContentSignerBuilder;
+import org.bouncycastle.openpgp.operator.bc.BcPGPDigestCalculatorProvider;
+import org.bouncycastle.util.encoders.Hex;
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.gradle.plugins.signing.signatory.Signatory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decodes, parses and decrypts the GPG signing key once per build, rather than once per publication per project, and
+ * signs for every {@code Sign} task in the build with it. A new signature generator is made for every signature, so it
+ * is safe to use from many tasks at once. Signatures can also be made a chunk at a time, from bytes that are being read
+ * for something else anyway.
+ */
+public abstract class SigningKeyService implements BuildService<SigningKeyService.Params>, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(SigningKeyService.class);
+    // Gradle's PgpSignatory reads a KiB at a time, which for a multi-gigabyte dist is millions of reads from disk
+    private static final int SIGN_BUFFER_SIZE = 64 * 1024;
+
+    private final AtomicLong signatures = new AtomicLong();
+    private final AtomicLong signingNanos = new AtomicLong();
+    private String fingerprint;
+    private PGPSecretKey secretKey;
+    // Only set once the key has been parsed and decrypted, after the fields above
+    private volatile PGPPrivateKey privateKey;
+    private long parseNanos;
+
+    public interface Params extends BuildServiceParameters {
+        Property<String> getKeyId();
+
+        Property<String> getBase64Key();
+
+        Property<String> getPassword();
+    }
+
+    static Provider<SigningKeyService> registerIfAbsent(Project project, GpgSigningKey gpgSigningKey) {
+        return project.getGradle()
+                .getSharedServices()
+                .registerIfAbsent("externalPublishSigningKey", SigningKeyService.class, spec -> {
+                    spec.getParameters().getKeyId().set(gpgSigningKey.keyId());
+                    spec.getParameters().getBase64Key().set(gpgSigningKey.base64Key());
+                    spec.getParameters().getPassword().set(gpgSigningKey.password());
+                });
+    }
+
+    /**
+     * The OpenPGP fingerprint of the signing key's public half. Safe to use as a build cache key, unlike the secret key
+     * or its password.
+     */
+    final String fingerprint() {
+        privateKey();
+        return fingerprint;
+    }
+
+    /** Writes the binary signature of {@code toSign}, like {@code PgpSignatory}, for a {@code Sign} task to armor. */
+    final void sign(InputStream toSign, OutputStream signatureDestination) {
+        long start = System.nanoTime();
+        StreamingSignature signature = startSignature();
+        byte[] buffer = new byte[SIGN_BUFFER_SIZE];
+        try {
+            int read;
+            while ((read = toSign.read(buffer)) != -1) {
+                signature.update(buffer, 0, read);
+            }
+            signature.writeTo(signatureDestination);
+        } catch (IOException e) {
+            throw new GradleException("Could not sign", e);
+        }
+        signingNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    /** Starts a signature that is made from the bytes given to it, in the same way as by {@code Sign} tasks. */
+    final StreamingSignature startSignature() {
+        PGPPrivateKey key = privateKey();
+        try {
+            // The same as PgpSignatory, so signatures are the same as Gradle's own
+            PGPSignatureGenerator generator = new PGPSignatureGenerator(
+                    new BcPGPContentSignerBuilder(secretKey.getPublicKey().getAlgorithm(), HashAlgorithmTags.SHA512));
+            generator.init(PGPSignature.BINARY_DOCUMENT, key);
+            signatures.incrementAndGet();
+            return new StreamingSignature(generator);
+        } catch (PGPException e) {
+            throw new GradleException("Could not start a signature", e);
+        }
+    }
+
+    private PGPPrivateKey privateKey() {
+        PGPPrivateKey result = privateKey;
+        if (result == null) {
+            synchronized (this) {
+                result = privateKey;
+                if (result == null) {
+                    long start = System.nanoTime();
+                    result = parsePrivateKey();
+                    parseNanos = System.nanoTime() - start;
+                    privateKey = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Decrypting the key from its password is slow on purpose, so this is only done once. */
+    private PGPPrivateKey parsePrivateKey() {
+        String keyId = getParameters().getKeyId().get().toUpperCase(Locale.ROOT);
+        byte[] armoredKey = Base64.getDecoder().decode(getParameters().getBase64Key().get());
+
+        try (InputStream decoded = PGPUtil.getDecoderStream(new ByteArrayInputStream(armoredKey))) {
+            PGPSecretKeyRingCollection keyRings =
+                    new PGPSecretKeyRingCollection(decoded, new BcKeyFingerprintCalculator());
+
+            Iterator<PGPSecretKeyRing> rings = keyRings.getKeyRings();
+            while (rings.hasNext()) {
+                Iterator<PGPSecretKey> keys = rings.next().getSecretKeys();
+                while (keys.hasNext()) {
+                    PGPSecretKey key = keys.next();
+                    if (String.format("%016X", key.getKeyID()).endsWith(keyId)) {
+                        fingerprint = Hex.toHexString(key.getPublicKey().getFingerprint());
+                        secretKey = key;
+                        return key.extractPrivateKey(
+                                new BcPBESecretKeyDecryptorBuilder(new BcPGPDigestCalculatorProvider())
+                                        .build(getParameters().getPassword().get().toCharArray()));
+                    }
+                }
+            }
+        } catch (IOException | PGPException e) {
+            throw new GradleException("Could not read the GPG signing key", e);
+        }
+
+        throw new GradleException("Could not find a GPG signing key with id " + keyId);
+    }
+
+    @Override
+    public final void close() {
+        if (privateKey != null) {
+            log.info(
+                    "Parsed GPG signing key in {}ms, then made {} signatures in {}ms",
+                    parseNanos / 1_000_000,
+                    signatures.get(),
+                    signingNanos.get() / 1_000_000);
+        }
+    }
+
+    /** A signature being made a chunk at a time, which is then written out armored, like by {@code Sign} tasks. */
+    static final class StreamingSignature {
+        private final PGPSignatureGenerator generator;
+
+        private StreamingSignature(PGPSignatureGenerator generator) {
+            this.generator = generator;
+        }
+
+        void update(byte[] bytes, int offset, int length) {
+            generator.update(bytes, offset, length);
+        }
+
+        byte[] armored() {
+            ByteArrayOutputStream signature = new ByteArrayOutputStream();
+            try (ArmoredOutputStream armored = new ArmoredOutputStream(signature)) {
+                writeTo(armored);
+            } catch (IOException e) {
+                throw new GradleException("Could not finish signature", e);
+            }
+            return signature.toByteArray();
+        }
+
+        void writeTo(OutputStream destination) throws IOException {
+            try {
+                generator.generate().encode(destination);
+            } catch (PGPException e) {
+                throw new GradleException("Could not finish signature", e);
+            }
+        }
+    }
+
+    /** A {@link Signatory} for {@code Sign} tasks that signs using the shared, already parsed, key. */
+    static final class SharedSignatory implements Signatory {
+        private final Provider<SigningKeyService> service;
+        private final String keyId;
+
+        SharedSignatory(Provider<SigningKeyService> service, String keyId) {
+            this.service = service;
+            this.keyId = keyId;
+        }
+
+        @Override
+        public String getName() {
+            return "externalPublish";
+        }
+
+        @Override
+        public void sign(InputStream toSign, OutputStream destination) {
+            service.get().sign(toSign, destination);
+        }
+
+        @Override
+        public byte[] sign(InputStream toSign) {
+            ByteArrayOutputStream signature = new ByteArrayOutputStream();
+            sign(toSign, signature);
+            return signature.toByteArray();
+        }
+
+        @Override
+        public String getKeyId() {
+            return keyId;
+        }
+    }
+}
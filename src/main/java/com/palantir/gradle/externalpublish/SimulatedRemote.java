@@ -0,0 +1,501 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import groovy.json.JsonOutput;
+import groovy.json.JsonSlurper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import org.gradle.api.Project;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * A local stand-in for Sonatype's Nexus staging API, the Central Publisher API and the JetBrains Marketplace, used for
+ * dry runs. It accepts everything, keeps every uploaded file, and logs every request in the order it arrived, while
+ * delaying each request by the configured latency and limiting all uploads together to the configured bandwidth. It
+ * can also throttle uploads over a concurrency limit, the way Sonatype does when it is overwhelmed. On close it writes
+ * a manifest of exactly what was uploaded, with checksums and whether each file came with a signature.
+ */
+public abstract class SimulatedRemote implements BuildService<SimulatedRemote.Params>, AutoCloseable {
+    private static final Logger log = Logging.getLogger(SimulatedRemote.class);
+
+    private static final String PROFILE_ID = "simulated";
+    private static final Pattern DEPLOY_PATH = Pattern.compile("/staging/deployByRepositoryId/([^/]+)/(.+)");
+    private static final Pattern SNAPSHOT_PATH = Pattern.compile("/content/repositories/snapshots/(.+)");
+    private static final Pattern CONTENT_PATH = Pattern.compile("/repositories/[^/]+/content/(.+)");
+    private static final Pattern START_PATH = Pattern.compile("/staging/profiles/[^/]+/start");
+    private static final Pattern PROFILE_REPOSITORIES_PATH = Pattern.compile("/staging/profile_repositories(/[^/]+)?");
+    private static final Pattern REPOSITORY_PATH = Pattern.compile("/staging/repository/([^/]+)(/activity)?");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicInteger uploadsInFlight = new AtomicInteger();
+    private final AtomicInteger throttledCount = new AtomicInteger();
+    // Keyed by the order the requests arrived in, rather than the order they finished in
+    private final Map<Integer, String> requestLog = new TreeMap<>();
+    private final Map<String, Upload> uploads = new LinkedHashMap<>();
+    private final Map<String, Map<String, Object>> stagingRepositories = new LinkedHashMap<>();
+    private int stagingRepositoriesStarted;
+    // Each connection comes from its own client port, so this counts how many connections the build opened
+    private final Set<Integer> connections = new HashSet<>();
+    private long bandwidthAvailableAtNanos = System.nanoTime();
+
+    public interface Params extends BuildServiceParameters {
+        DirectoryProperty getOutputDirectory();
+
+        Property<Duration> getLatency();
+
+        /** In bytes per second, shared between every upload at once. Zero means unlimited. */
+        Property<Long> getBandwidth();
+
+        /** How many uploads to accept at once, throttling the rest. Zero means unlimited. */
+        Property<Integer> getConcurrencyLimit();
+    }
+
+    static Provider<SimulatedRemote> registerIfAbsent(
+            Project rootProject, ExternalPublishRootExtension extension) {
+        return rootProject
+                .getGradle()
+                .getSharedServices()
+                .registerIfAbsent("externalPublishSimulatedRemote", SimulatedRemote.class, spec -> {
+                    spec.getParameters()
+                            .getOutputDirectory()
+                            .set(rootProject.getLayout().getBuildDirectory().dir("external-publish/dry-run"));
+                    spec.getParameters().getLatency().set(extension.getDryRunLatency());
+                    spec.getParameters().getBandwidth().set(extension.getDryRunBandwidth());
+                    spec.getParameters().getConcurrencyLimit().set(extension.getDryRunConcurrencyLimit());
+                });
+    }
+
+    static URI url(int port) {
+        return URI.create("http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + port + "/");
+    }
+
+    public SimulatedRemote() {
+        Path outputDirectory = outputDirectory();
+        try {
+            if (Files.exists(outputDirectory)) {
+                try (Stream<Path> paths = Files.walk(outputDirectory)) {
+                    for (Path path : paths.sorted((first, second) -> second.compareTo(first)).toList()) {
+                        Files.delete(path);
+                    }
+                }
+            }
+            Files.createDirectories(outputDirectory);
+
+            // Any free port, picked as the server starts, so nothing races to bind it or caches it between builds
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to start the simulated remote", e);
+        }
+
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "simulated-remote");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+
+        log.lifecycle(
+                "Dry run: publishing to a simulated remote at {}, writing what would be uploaded to {}",
+                url(),
+                outputDirectory);
+    }
+
+    /** Where the remote is listening, which is only known once it has started. */
+    final URI url() {
+        return url(server.getAddress().getPort());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int sequence = requestCount.incrementAndGet();
+        long start = System.nanoTime();
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        int clientPort = exchange.getRemoteAddress().getPort();
+        boolean isUpload = method.equals("PUT");
+        int concurrentUploads = isUpload ? uploadsInFlight.incrementAndGet() : 0;
+
+        try {
+            sleep(getParameters().getLatency().get().toNanos());
+
+            int concurrencyLimit = getParameters().getConcurrencyLimit().get();
+            Response response;
+            if (concurrencyLimit > 0 && concurrentUploads > concurrencyLimit) {
+                throttledCount.incrementAndGet();
+                exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+                response = Response.text(429, "Too many concurrent uploads");
+            } else {
+                response = respond(method, path, exchange.getRequestBody());
+            }
+            byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+
+            boolean hasBody = body.length > 0 && !method.equals("HEAD");
+
+            exchange.getResponseHeaders().set("Content-Type", response.contentType);
+            exchange.sendResponseHeaders(response.status, hasBody ? body.length : -1);
+            if (hasBody) {
+                exchange.getResponseBody().write(body);
+            }
+
+            synchronized (this) {
+                connections.add(clientPort);
+                requestLog.put(
+                        sequence,
+                        String.format(
+                                "%d %s %s %d %dms connection=%d",
+                                sequence,
+                                method,
+                                path,
+                                response.status,
+                                (System.nanoTime() - start) / 1_000_000,
+                                clientPort));
+            }
+        } catch (RuntimeException e) {
+            log.error("Simulated remote failed to handle {} {}", method, path, e);
+            throw e;
+        } finally {
+            if (isUpload) {
+                uploadsInFlight.decrementAndGet();
+            }
+            exchange.close();
+        }
+    }
+
+    private Response respond(String method, String path, InputStream requestBody) throws IOException {
+        Matcher deploy = DEPLOY_PATH.matcher(path);
+        Matcher snapshot = SNAPSHOT_PATH.matcher(path);
+        if (deploy.matches() || snapshot.matches()) {
+            String artifactPath = deploy.matches() ? deploy.group(2) : snapshot.group(1);
+            return method.equals("PUT") ? upload(artifactPath, requestBody) : download(artifactPath);
+        }
+
+        Matcher content = CONTENT_PATH.matcher(path);
+        if (content.matches()) {
+            return method.equals("HEAD") ? exists(content.group(1)) : download(content.group(1));
+        }
+
+        if (method.equals("POST") && path.equals("/api/v1/publisher/upload")) {
+            upload("central-bundle.zip", requestBody);
+            return Response.text(201, "simulated-deployment");
+        }
+
+        if (method.equals("POST") && path.equals("/plugin/uploadPlugin")) {
+            // Kept as the whole multipart request, which is exactly what would have been uploaded
+            upload("jetbrains-marketplace/uploadPlugin", requestBody);
+            return Response.json(200, Map.of("id", 1));
+        }
+
+        if (path.equals("/api/v1/publisher/status")) {
+            return Response.json(200, Map.of("deploymentId", "simulated-deployment", "deploymentState", "PUBLISHED"));
+        }
+
+        if (method.equals("POST") && START_PATH.matcher(path).matches()) {
+            Map<?, ?> data = (Map<?, ?>) parseJson(requestBody).get("data");
+            return Response.json(201, Map.of("data", startStagingRepository(String.valueOf(data.get("description")))));
+        }
+
+        if (method.equals("POST") && path.equals("/staging/bulk/close")) {
+            return transition(requestBody, "closed");
+        }
+
+        if (method.equals("POST") && path.equals("/staging/bulk/promote")) {
+            return transition(requestBody, "released");
+        }
+
+        if (method.equals("POST") && path.equals("/staging/bulk/drop")) {
+            return transition(requestBody, "dropped");
+        }
+
+        if (PROFILE_REPOSITORIES_PATH.matcher(path).matches()) {
+            synchronized (this) {
+                return Response.json(200, Map.of("data", new ArrayList<>(stagingRepositories.values())));
+            }
+        }
+
+        Matcher repository = REPOSITORY_PATH.matcher(path);
+        if (repository.matches()) {
+            synchronized (this) {
+                Map<String, Object> stagingRepository = stagingRepositories.get(repository.group(1));
+                if (stagingRepository == null) {
+                    return Response.json(404, Map.of("errors", List.of(Map.of("msg", "No such repository"))));
+                }
+                return repository.group(2) == null
+                        ? Response.json(200, stagingRepository)
+                        : Response.json(200, List.of());
+            }
+        }
+
+        return Response.text(404, "The simulated remote does not know about " + method + " " + path);
+    }
+
+    private synchronized Map<String, Object> startStagingRepository(String description) {
+        // Counted separately, as released repositories are dropped again and their ids must not be reused
+        String repositoryId = PROFILE_ID + "-" + ++stagingRepositoriesStarted;
+        Map<String, Object> stagingRepository = new LinkedHashMap<>();
+        stagingRepository.put("repositoryId", repositoryId);
+        stagingRepository.put("stagedRepositoryId", repositoryId);
+        stagingRepository.put("profileId", PROFILE_ID);
+        stagingRepository.put("type", "open");
+        stagingRepository.put("transitioning", false);
+        stagingRepository.put("description", description);
+        stagingRepositories.put(repositoryId, stagingRepository);
+        return stagingRepository;
+    }
+
+    private Response transition(InputStream requestBody, String type) {
+        Map<?, ?> data = (Map<?, ?>) parseJson(requestBody).get("data");
+        synchronized (this) {
+            for (Object repositoryId : (List<?>) data.get("stagedRepositoryIds")) {
+                Map<String, Object> stagingRepository = stagingRepositories.get(String.valueOf(repositoryId));
+                if (stagingRepository == null) {
+                    return Response.json(404, Map.of("errors", List.of(Map.of("msg", "No such repository"))));
+                }
+                stagingRepository.put("type", type);
+
+                // Like Sonatype, which then answers 404 for it
+                if (type.equals("released") && Boolean.TRUE.equals(data.get("autoDropAfterRelease"))) {
+                    stagingRepositories.remove(String.valueOf(repositoryId));
+                }
+            }
+        }
+        return Response.text(201, "");
+    }
+
+    private Response upload(String artifactPath, InputStream requestBody) throws IOException {
+        Optional<Path> maybeDestination = repositoryPath(artifactPath);
+        if (maybeDestination.isEmpty()) {
+            requestBody.transferTo(OutputStream.nullOutputStream());
+            return outsideRepository(artifactPath);
+        }
+        Path destination = maybeDestination.get();
+        Files.createDirectories(destination.getParent());
+
+        MessageDigest digest = sha256();
+        long size = 0;
+        byte[] buffer = new byte[64 * 1024];
+
+        try (OutputStream out = Files.newOutputStream(destination)) {
+            int read;
+            while ((read = requestBody.read(buffer)) != -1) {
+                throttle(read);
+                digest.update(buffer, 0, read);
+                out.write(buffer, 0, read);
+                size += read;
+            }
+        }
+
+        synchronized (this) {
+            uploads.put(artifactPath, new Upload(size, HexFormat.of().formatHex(digest.digest())));
+        }
+        return Response.text(201, "");
+    }
+
+    private Response download(String artifactPath) throws IOException {
+        Optional<Path> file = repositoryPath(artifactPath);
+        if (file.isEmpty()) {
+            return outsideRepository(artifactPath);
+        }
+        if (!Files.isRegularFile(file.get())) {
+            return Response.text(404, "");
+        }
+        return Response.text(200, Files.readString(file.get()));
+    }
+
+    private Response exists(String artifactPath) {
+        Optional<Path> file = repositoryPath(artifactPath);
+        if (file.isEmpty()) {
+            return outsideRepository(artifactPath);
+        }
+        return Response.text(Files.isRegularFile(file.get()) ? 200 : 404, "");
+    }
+
+    /**
+     * Where an artifact is kept, or empty if its path would lead out of the repository, like {@code ../../x} does,
+     * so that nothing sent to the remote can read or write anywhere else on disk.
+     */
+    private Optional<Path> repositoryPath(String artifactPath) {
+        Path repository = outputDirectory().resolve("repository").normalize();
+        Path file = repository.resolve(artifactPath).normalize();
+        return file.startsWith(repository) && !file.equals(repository) ? Optional.of(file) : Optional.empty();
+    }
+
+    private static Response outsideRepository(String artifactPath) {
+        log.warn("Dry run: rejected a request for {}, which is outside of the simulated repository", artifactPath);
+        return Response.text(400, "Path is outside of the repository");
+    }
+
+    /** Holds back each chunk of every upload so that, between them, they never go faster than the bandwidth. */
+    private void throttle(int bytes) {
+        long bandwidth = getParameters().getBandwidth().get();
+        if (bandwidth <= 0) {
+            return;
+        }
+
+        long sentAtNanos;
+        synchronized (this) {
+            sentAtNanos = Math.max(System.nanoTime(), bandwidthAvailableAtNanos)
+                    + TimeUnit.SECONDS.toNanos(bytes) / bandwidth;
+            bandwidthAvailableAtNanos = sentAtNanos;
+        }
+        sleep(sentAtNanos - System.nanoTime());
+    }
+
+    @Override
+    public final void close() {
+        server.stop(0);
+        executor.shutdownNow();
+
+        List<Object> files = new ArrayList<>();
+        synchronized (this) {
+            uploads.forEach((artifactPath, upload) -> {
+                if (isChecksumOrSignature(artifactPath)) {
+                    return;
+                }
+                Map<String, Object> file = new LinkedHashMap<>();
+                file.put("path", artifactPath);
+                file.put("bytes", upload.size);
+                file.put("sha256", upload.sha256);
+                file.put("signed", uploads.containsKey(artifactPath + ".asc"));
+                files.add(file);
+            });
+
+            try {
+                Files.write(outputDirectory().resolve("requests.log"), requestLog.values(), StandardCharsets.UTF_8);
+                Files.writeString(
+                        outputDirectory().resolve("manifest.json"),
+                        JsonOutput.prettyPrint(JsonOutput.toJson(Map.of(
+                                "requests", requestCount.get(),
+                                "connections", connections.size(),
+                                "throttled", throttledCount.get(),
+                                "files", files))),
+                        StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write the dry run results", e);
+            }
+        }
+
+        log.lifecycle(
+                "Dry run: {} requests made over {} connections, {} throttled, {} files would have been published,"
+                        + " see {}",
+                requestCount.get(),
+                connections.size(),
+                throttledCount.get(),
+                files.size(),
+                outputDirectory());
+    }
+
+    private Path outputDirectory() {
+        return getParameters().getOutputDirectory().get().getAsFile().toPath();
+    }
+
+    private static boolean isChecksumOrSignature(String artifactPath) {
+        return Stream.of(".asc", ".md5", ".sha1", ".sha256", ".sha512").anyMatch(artifactPath::endsWith);
+    }
+
+    private static Map<?, ?> parseJson(InputStream requestBody) {
+        return (Map<?, ?>) new JsonSlurper().parse(requestBody, StandardCharsets.UTF_8.name());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleep(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while simulating the remote", e);
+        }
+    }
+
+    private static final class Upload {
+        private final long size;
+        private final String sha256;
+
+        Upload(long size, String sha256) {
+            this.size = size;
+            this.sha256 = sha256;
+        }
+    }
+
+    private static final class Response {
+        private final int status;
+        private final String contentType;
+        private final String body;
+
+        private Response(int status, String contentType, String body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        static Response json(int status, Object body) {
+            return new Response(status, "application/json", JsonOutput.toJson(body));
+        }
+
+        static Response text(int status, String body) {
+            return new Response(status, "text/plain", body);
+        }
+    }
+}
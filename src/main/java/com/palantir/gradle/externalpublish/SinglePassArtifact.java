@@ -0,0 +1,188 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish;
+
+import com.palantir.gradle.externalpublish.SigningKeyService.StreamingSignature;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.gradle.api.GradleException;
+
+/**
+ * Reads an artifact from disk once, as it is uploaded, working out its checksums and signature from the same bytes on
+ * their way past. Gradle's own publishing reads every artifact once to sign it, once for each checksum and once more
+ * to upload it. Every retry of the upload starts a new pass, so only a pass that read the whole artifact counts. The
+ * artifact is only read as fast as the connection asks for it, a chunk at a time into the HTTP client's own buffers, so
+ * however big it is, only a few chunks of it are ever in memory.
+ */
+final class SinglePassArtifact implements AutoCloseable {
+    // The checksums Gradle publishes next to every file, by the extension they are published with
+    private static final Map<String, String> CHECKSUM_ALGORITHMS = checksumAlgorithms();
+
+    private final Path file;
+    private final long size;
+    // Null when publications are not being signed
+    private final SigningKeyService signing;
+    private volatile Pass lastPass;
+
+    SinglePassArtifact(Path file, SigningKeyService signing) {
+        this.file = file;
+        this.size = file.toFile().length();
+        this.signing = signing;
+    }
+
+    /** How many files are uploaded for each artifact, including its checksums and signature. */
+    static int filesPerArtifact(boolean signed) {
+        int files = 1 + CHECKSUM_ALGORITHMS.size();
+        return signed ? files + 1 + CHECKSUM_ALGORITHMS.size() : files;
+    }
+
+    long size() {
+        return size;
+    }
+
+    /** The body of the upload, which may be sent more than once, reading the artifact afresh each time. */
+    BodyPublisher body() {
+        return BodyPublishers.fromPublisher(BodyPublishers.ofInputStream(this::startPass), size);
+    }
+
+    /**
+     * The checksums and signature to upload next to the artifact, as the suffixes to add to its path, worked out by the
+     * last pass. Fails unless that pass read the whole artifact.
+     */
+    Map<String, byte[]> sidecars() {
+        Pass pass = lastPass;
+        if (pass == null || pass.read != size) {
+            throw new GradleException("Only read part of " + file + " while uploading it");
+        }
+        // Read to the end, so nothing will read it again
+        close(pass);
+
+        Map<String, byte[]> sidecars = new LinkedHashMap<>();
+        pass.digests.forEach((extension, digest) -> sidecars.put("." + extension, hex(digest.digest())));
+
+        if (pass.signature != null) {
+            byte[] signature = pass.signature.armored();
+            sidecars.put(".asc", signature);
+            CHECKSUM_ALGORITHMS.forEach((extension, algorithm) ->
+                    sidecars.put(".asc." + extension, hex(digest(algorithm).digest(signature))));
+        }
+
+        return sidecars;
+    }
+
+    /** Closes the file, if the last pass still has it open, such as when the upload failed part way through it. */
+    @Override
+    public void close() {
+        Pass pass = lastPass;
+        if (pass != null) {
+            close(pass);
+        }
+    }
+
+    private InputStream startPass() {
+        // A retry abandons the previous pass, which the HTTP client only closes once it has read it to the end
+        close();
+        try {
+            Pass pass = new Pass(FileChannel.open(file), signing == null ? null : signing.startSignature());
+            lastPass = pass;
+            return pass;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + file, e);
+        }
+    }
+
+    private void close(Pass pass) {
+        try {
+            pass.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close " + file, e);
+        }
+    }
+
+    private static byte[] hex(byte[] digest) {
+        return HexFormat.of().formatHex(digest).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static MessageDigest digest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new GradleException("No " + algorithm + " in this JVM", e);
+        }
+    }
+
+    private static Map<String, String> checksumAlgorithms() {
+        Map<String, String> algorithms = new LinkedHashMap<>();
+        algorithms.put("md5", "MD5");
+        algorithms.put("sha1", "SHA-1");
+        algorithms.put("sha256", "SHA-256");
+        algorithms.put("sha512", "SHA-512");
+        return algorithms;
+    }
+
+    /** One read of the artifact, feeding every chunk the upload reads to the digests and signature as well. */
+    private static final class Pass extends InputStream {
+        private final FileChannel channel;
+        private final Map<String, MessageDigest> digests = new LinkedHashMap<>();
+        private final StreamingSignature signature;
+        private final byte[] single = new byte[1];
+        private long read;
+
+        Pass(FileChannel channel, StreamingSignature signature) {
+            this.channel = channel;
+            this.signature = signature;
+            CHECKSUM_ALGORITHMS.forEach((extension, algorithm) -> digests.put(extension, digest(algorithm)));
+        }
+
+        @Override
+        public int read() throws IOException {
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int count = channel.read(ByteBuffer.wrap(bytes, offset, length));
+            if (count > 0) {
+                for (MessageDigest digest : digests.values()) {
+                    digest.update(bytes, offset, count);
+                }
+                if (signature != null) {
+                    signature.update(bytes, offset, count);
+                }
+                read += count;
+            }
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
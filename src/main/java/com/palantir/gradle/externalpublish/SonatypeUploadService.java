@@ -0,0 +1,388 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish;
+
+import io.github.gradlenexus.publishplugin.NexusRepository;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * Uploads files into a Nexus staging repository over one HTTP client shared by every project in the build, rather
+ * than a new transport per publish task. The client keeps connections alive between requests and negotiates HTTP/2
+ * where the server supports it, so the TLS handshake and connection setup is paid a handful of times per build
+ * instead of once per task. Every upload in the build goes through one {@link AdaptiveUploadLimiter}, and uploads the
+ * remote throttles are retried with backoff.
+ */
+public abstract class SonatypeUploadService implements BuildService<SonatypeUploadService.Params>, AutoCloseable {
+    private static final Logger log = Logging.getLogger(SonatypeUploadService.class);
+    // What Nexus, and the load balancers in front of it, answer with when they have more than they can handle
+    private static final Set<Integer> THROTTLING_STATUSES = Set.of(429, 502, 503, 504);
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofMinutes(1))
+            .build();
+    // No more threads than uploads the limiter ever lets run at once, however many tasks are uploading. Uploads
+    // waiting for a thread are queued across every task, so the largest of them all can go first
+    private final ExecutorService uploadThreads = new ThreadPoolExecutor(
+            Math.max(1, getParameters().getMaxConcurrentUploads().get()),
+            Math.max(1, getParameters().getMaxConcurrentUploads().get()),
+            0,
+            TimeUnit.MILLISECONDS,
+            new PriorityBlockingQueue<>(
+                    16,
+                    Comparator.comparing(
+                            runnable -> (QueuedUpload) runnable,
+                            QueuedUpload.order(getParameters().getLargestUploadsFirst().get()))),
+            runnable -> {
+                Thread thread = new Thread(runnable, "sonatype-upload");
+                thread.setDaemon(true);
+                return thread;
+            });
+    private final AtomicLong queuedUploads = new AtomicLong();
+    private final Map<HttpClient.Version, LongAdder> requestsByVersion = new ConcurrentHashMap<>();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicInteger retries = new AtomicInteger();
+    private final AdaptiveUploadLimiter limiter = new AdaptiveUploadLimiter(
+            getParameters().getMaxConcurrentUploads().get(),
+            getParameters().getMaxUploadsPerSecond().get(),
+            getParameters().getLargestUploadsFirst().get());
+    private volatile URI nexusUrl;
+
+    public interface Params extends BuildServiceParameters {
+        Property<URI> getNexusUrl();
+
+        Property<String> getUsername();
+
+        Property<String> getPassword();
+
+        Property<Integer> getMaxConcurrentUploads();
+
+        /** Zero means unlimited. */
+        Property<Double> getMaxUploadsPerSecond();
+
+        Property<Integer> getRetries();
+
+        Property<Duration> getInitialBackoff();
+
+        Property<Duration> getMaxBackoff();
+
+        Property<Boolean> getLargestUploadsFirst();
+    }
+
+    static Provider<SonatypeUploadService> registerIfAbsent(
+            Project rootProject, NexusRepository sonatypeRepository, ExternalPublishRootExtension extension) {
+        return rootProject
+                .getGradle()
+                .getSharedServices()
+                .registerIfAbsent("externalPublishSonatypeUpload", SonatypeUploadService.class, spec -> {
+                    // Also caps the publish tasks using Gradle's own transport, which only declare they use this
+                    spec.getMaxParallelUsages().set(extension.getMaxConcurrentUploads());
+                    spec.getParameters().getNexusUrl().set(sonatypeRepository.getNexusUrl());
+                    spec.getParameters().getUsername().set(sonatypeRepository.getUsername());
+                    spec.getParameters().getPassword().set(sonatypeRepository.getPassword());
+                    spec.getParameters().getMaxConcurrentUploads().set(extension.getMaxConcurrentUploads());
+                    spec.getParameters().getMaxUploadsPerSecond().set(extension.getMaxUploadsPerSecond());
+                    spec.getParameters().getRetries().set(extension.getUploadRetries());
+                    spec.getParameters().getInitialBackoff().set(extension.getUploadInitialBackoff());
+                    spec.getParameters().getMaxBackoff().set(extension.getUploadMaxBackoff());
+                    spec.getParameters().getLargestUploadsFirst().set(extension.getLargestUploadsFirst());
+                });
+    }
+
+    /**
+     * Uploads every one of {@code files}, keyed by their path relative to the root of the staging repository, as
+     * many at once as the limiter allows. Returns how many times uploads had to be retried.
+     */
+    final int uploadAll(String stagingRepositoryId, Map<String, Path> files) {
+        return runAll(files, file -> () -> upload(stagingRepositoryId, file.getKey(), file.getValue()));
+    }
+
+    /**
+     * Runs the upload of every one of {@code files} on the upload threads and waits for them all, returning how many
+     * retries they needed. As soon as any upload fails, the uploads still waiting are cancelled, and those already
+     * running are interrupted, which stops them between retries or aborts the request they are in the middle of.
+     */
+    private int runAll(Map<String, Path> files, Function<Map.Entry<String, Path>, Callable<Integer>> uploadOf) {
+        BlockingQueue<QueuedUpload> completions = new LinkedBlockingQueue<>();
+        Stream<Map.Entry<String, Path>> inOrder = files.entrySet().stream();
+        if (getParameters().getLargestUploadsFirst().get()) {
+            // Idle threads take uploads straight away rather than queueing them, so queue the largest first too
+            inOrder = inOrder.sorted(Comparator.comparingLong(file -> -file.getValue().toFile().length()));
+        }
+        List<QueuedUpload> running = inOrder.map(file -> new QueuedUpload(
+                        uploadOf.apply(file),
+                        file.getValue().toFile().length(),
+                        queuedUploads.incrementAndGet(),
+                        completions))
+                .collect(Collectors.toList());
+        running.forEach(uploadThreads::execute);
+
+        try {
+            int retries = 0;
+            for (int i = 0; i < running.size(); i++) {
+                retries += completions.take().get();
+            }
+            return retries;
+        } catch (ExecutionException e) {
+            running.forEach(upload -> upload.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GradleException("Failed to upload to Sonatype", e.getCause());
+        } catch (InterruptedException e) {
+            running.forEach(upload -> upload.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while uploading to Sonatype", e);
+        }
+    }
+
+    /**
+     * Like {@link #uploadAll}, but reads each of {@code artifacts} only once, working out its checksums and, unless
+     * {@code signing} is null, its signature on the way, then uploads those next to it.
+     */
+    final int uploadAllInSinglePass(
+            String stagingRepositoryId, Map<String, Path> artifacts, SigningKeyService signing) {
+        return runAll(
+                artifacts,
+                artifact -> () ->
+                        uploadInSinglePass(stagingRepositoryId, artifact.getKey(), artifact.getValue(), signing));
+    }
+
+    private int uploadInSinglePass(String stagingRepositoryId, String path, Path file, SigningKeyService signing) {
+        int retries;
+        Map<String, byte[]> sidecars;
+        try (SinglePassArtifact artifact = new SinglePassArtifact(file, signing)) {
+            retries = upload(stagingRepositoryId, path, artifact.body(), artifact.size());
+            sidecars = artifact.sidecars();
+        }
+
+        for (Map.Entry<String, byte[]> sidecar : sidecars.entrySet()) {
+            retries += upload(
+                    stagingRepositoryId,
+                    path + sidecar.getKey(),
+                    BodyPublishers.ofByteArray(sidecar.getValue()),
+                    sidecar.getValue().length);
+        }
+        return retries;
+    }
+
+    /**
+     * Uploads {@code file} to {@code path}, relative to the root of the staging repository, retrying while the remote
+     * throttles it. Returns how many times it had to be retried.
+     */
+    final int upload(String stagingRepositoryId, String path, Path file) {
+        try {
+            return upload(stagingRepositoryId, path, BodyPublishers.ofFile(file), file.toFile().length());
+        } catch (FileNotFoundException e) {
+            throw new GradleException("Could not find " + file + " to upload", e);
+        }
+    }
+
+    private int upload(String stagingRepositoryId, String path, BodyPublisher body, long size) {
+        URI uri = nexusUrl().resolve("staging/deployByRepositoryId/" + stagingRepositoryId + "/" + path);
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Authorization", authorization())
+                .PUT(body)
+                .build();
+
+        Backoff backoff = new Backoff(getParameters().getInitialBackoff().get(), getParameters().getMaxBackoff().get());
+        int attempt = 0;
+
+        while (true) {
+            HttpResponse<String> response;
+            long start;
+            try {
+                limiter.acquire(size);
+                start = System.nanoTime();
+                try {
+                    response = httpClient.send(request, BodyHandlers.ofString());
+                } catch (IOException e) {
+                    limiter.throttled(System.nanoTime() - start);
+                    attempt = retryOrGiveUp(attempt, backoff, Duration.ZERO, "Failed to PUT " + uri, e);
+                    continue;
+                } catch (InterruptedException | RuntimeException e) {
+                    // Otherwise the upload would count as in flight for the rest of the build
+                    limiter.failed();
+                    throw e;
+                }
+
+                long latencyNanos = System.nanoTime() - start;
+                nanos.addAndGet(latencyNanos);
+                requestsByVersion
+                        .computeIfAbsent(response.version(), _ignored -> new LongAdder())
+                        .increment();
+
+                if (THROTTLING_STATUSES.contains(response.statusCode())) {
+                    limiter.throttled(latencyNanos);
+                    attempt = retryOrGiveUp(
+                            attempt,
+                            backoff,
+                            retryAfter(response),
+                            "Failed to PUT " + uri + ": HTTP " + response.statusCode() + " " + response.body(),
+                            null);
+                    continue;
+                }
+
+                if (response.statusCode() / 100 != 2) {
+                    limiter.failed();
+                    throw new GradleException(
+                            "Failed to PUT " + uri + ": HTTP " + response.statusCode() + " " + response.body());
+                }
+
+                limiter.succeeded(size, latencyNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GradleException("Interrupted while trying to PUT " + uri, e);
+            }
+
+            bytes.addAndGet(size);
+            return attempt;
+        }
+    }
+
+    /** Waits before the next attempt, or fails the upload if it has already been retried too many times. */
+    private int retryOrGiveUp(int attempt, Backoff backoff, Duration retryAfter, String failure, Exception cause)
+            throws InterruptedException {
+        if (attempt >= getParameters().getRetries().get()) {
+            throw new GradleException(failure + " (gave up after " + attempt + " retries)", cause);
+        }
+
+        Duration delay = backoff.next();
+        Thread.sleep((retryAfter.compareTo(delay) > 0 ? retryAfter : delay).toMillis());
+        retries.incrementAndGet();
+        return attempt + 1;
+    }
+
+    private static Duration retryAfter(HttpResponse<?> response) {
+        try {
+            return response.headers()
+                    .firstValue("Retry-After")
+                    .map(seconds -> Duration.ofSeconds(Long.parseLong(seconds.trim())))
+                    .orElse(Duration.ZERO);
+        } catch (NumberFormatException e) {
+            // Could also be an HTTP date, which we just treat like any other throttling
+            return Duration.ZERO;
+        }
+    }
+
+    private URI nexusUrl() {
+        if (nexusUrl == null) {
+            URI url = getParameters().getNexusUrl().get();
+            nexusUrl = url.toString().endsWith("/") ? url : URI.create(url + "/");
+        }
+        return nexusUrl;
+    }
+
+    private String authorization() {
+        String credentials = getParameters().getUsername().get() + ":" + getParameters().getPassword().get();
+        return "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public final void close() {
+        uploadThreads.shutdownNow();
+        if (requestsByVersion.isEmpty()) {
+            return;
+        }
+
+        long requests = requestsByVersion.values().stream().mapToLong(LongAdder::sum).sum();
+        log.lifecycle(
+                "Uploaded {} MB to Sonatype in {} requests through one shared connection pool, spending {}s in"
+                        + " requests, by HTTP version: {}",
+                String.format("%.1f", bytes.get() / 1_000_000d),
+                requests,
+                String.format("%.1f", nanos.get() / 1_000_000_000d),
+                requestsByVersion);
+        log.lifecycle(
+                "Sonatype throttled {} uploads and was slow to answer {}, so {} were retried. Uploaded at most {} at"
+                        + " once, backing off to as few as {}",
+                limiter.throttledUploads(),
+                limiter.latencySpikes(),
+                retries.get(),
+                getParameters().getMaxConcurrentUploads().get(),
+                limiter.lowestConcurrencyLimit());
+    }
+
+    /** An upload waiting for one of the upload threads, which then reports to {@code completions} once it is done. */
+    private static final class QueuedUpload extends FutureTask<Integer> {
+        private final long size;
+        private final long sequence;
+        private final BlockingQueue<QueuedUpload> completions;
+
+        QueuedUpload(Callable<Integer> upload, long size, long sequence, BlockingQueue<QueuedUpload> completions) {
+            super(upload);
+            this.size = size;
+            this.sequence = sequence;
+            this.completions = completions;
+        }
+
+        /** In the order they were queued, unless {@code largestFirst}, whichever task queued them. */
+        static Comparator<QueuedUpload> order(boolean largestFirst) {
+            Comparator<QueuedUpload> inQueuedOrder = Comparator.comparingLong(upload -> upload.sequence);
+            return largestFirst
+                    ? Comparator.<QueuedUpload>comparingLong(upload -> -upload.size)
+                            .thenComparing(inQueuedOrder)
+                    : inQueuedOrder;
+        }
+
+        @Override
+        protected void done() {
+            completions.add(this);
+        }
+    }
+}
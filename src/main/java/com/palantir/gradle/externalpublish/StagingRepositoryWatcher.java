@@ -0,0 +1,196 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish;
+
+import com.palantir.gradle.externalpublish.NexusStagingClient.StagingEvent;
+import com.palantir.gradle.externalpublish.NexusStagingClient.StagingRepository;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import org.gradle.api.Action;
+import org.gradle.api.GradleException;
+import org.gradle.api.Task;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.provider.Provider;
+
+/**
+ * Follows a staging repository while a close or release is in progress, printing every state transition and rule
+ * evaluation as soon as it happens. Polling starts fast and backs off exponentially (with jitter) while nothing is
+ * changing. Everything happens on the calling thread, so a failed rule fails the caller straight away rather than
+ * waiting for the transition to time out, and nothing is left polling once the caller has finished, however it
+ * finished.
+ */
+final class StagingRepositoryWatcher {
+    private static final Duration INITIAL_POLL_INTERVAL = Duration.ofSeconds(1);
+    private static final Duration MAX_POLL_INTERVAL = Duration.ofSeconds(30);
+    // Matches the timeouts of the Nexus client
+    private static final Duration MAX_WATCH_TIME = Duration.ofMinutes(25);
+
+    private final Logger logger;
+    private final String repositoryId;
+    private final NexusStagingClient client;
+    private final String targetType;
+    private int failedPolls;
+
+    private StagingRepositoryWatcher(Logger logger, String repositoryId, NexusStagingClient client, String targetType) {
+        this.logger = logger;
+        this.repositoryId = repositoryId;
+        this.client = client;
+        this.targetType = targetType;
+    }
+
+    /**
+     * Replaces the actions of the Nexus plugin's close or release {@code task} with asking for the transition to
+     * {@code targetType} ("closed" or "released") and following it on the task's own thread. The Nexus plugin waits
+     * out its own timeouts even once a rule has failed, and can only be stopped sooner by interrupting its thread.
+     */
+    static void transitionOnTaskThread(
+            Task task,
+            Provider<String> repositoryId,
+            Provider<String> description,
+            Provider<URI> nexusUrl,
+            Provider<String> username,
+            Provider<String> password,
+            String targetType,
+            Provider<PublishingMetrics> publishingMetrics) {
+        task.setActions(List.of(new Action<Task>() {
+            @Override
+            public void execute(Task runningTask) {
+                NexusStagingClient client = new NexusStagingClient(nexusUrl.get(), username.get(), password.get());
+                StagingRepositoryWatcher watcher =
+                        new StagingRepositoryWatcher(runningTask.getLogger(), repositoryId.get(), client, targetType);
+
+                try {
+                    watcher.requestAndAwait(description.get());
+                } finally {
+                    publishingMetrics.get().requests(runningTask.getPath(), client.requests(), watcher.failedPolls);
+                }
+            }
+        }));
+    }
+
+    /**
+     * Asks for the staging repository to transition to {@code targetType} ("closed" or "released") and follows it on
+     * the calling thread until it gets there, failing as soon as Sonatype reports a failure. Returns how many polls
+     * failed along the way.
+     */
+    static int transition(
+            NexusStagingClient client, String repositoryId, String description, String targetType, Logger logger) {
+        StagingRepositoryWatcher watcher = new StagingRepositoryWatcher(logger, repositoryId, client, targetType);
+        watcher.requestAndAwait(description);
+        return watcher.failedPolls;
+    }
+
+    private void requestAndAwait(String description) {
+        // Counted before asking, so whatever the transition causes gets reported however quickly it happens, while
+        // the events of anything before it (such as an earlier attempt that failed) are not reported again
+        int seenEvents = eventsSoFar();
+
+        if (targetType.equals("closed")) {
+            client.close(repositoryId, description);
+        } else {
+            client.release(repositoryId, description);
+        }
+        await(seenEvents);
+    }
+
+    private int eventsSoFar() {
+        try {
+            return client.events(repositoryId).size();
+        } catch (RuntimeException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw e;
+            }
+            failedPolls++;
+            logger.info(
+                    "Failed to poll staging repository {}, will only report its events from now on", repositoryId, e);
+            return -1;
+        }
+    }
+
+    private void await(int initiallySeenEvents) {
+        Backoff backoff = new Backoff(INITIAL_POLL_INTERVAL, MAX_POLL_INTERVAL);
+        Instant deadline = Instant.now().plus(MAX_WATCH_TIME);
+        String lastState = null;
+        int seenEvents = initiallySeenEvents;
+
+        while (Instant.now().isBefore(deadline)) {
+            Optional<StagingRepository> maybeRepository;
+            List<StagingEvent> events;
+            try {
+                maybeRepository = client.repository(repositoryId);
+                events = maybeRepository.isPresent() ? client.events(repositoryId) : List.of();
+            } catch (RuntimeException e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                failedPolls++;
+                logger.info("Failed to poll staging repository {}, will try again", repositoryId, e);
+                sleep(backoff);
+                continue;
+            }
+
+            if (maybeRepository.isEmpty()) {
+                // Releasing drops the repository as soon as it has been released
+                if (targetType.equals("released")) {
+                    logger.lifecycle("Staging repository {} has been released and dropped", repositoryId);
+                    return;
+                }
+                throw new GradleException("Staging repository " + repositoryId + " no longer exists, so cannot be "
+                        + targetType + ". Has it been dropped?");
+            }
+            StagingRepository repository = maybeRepository.get();
+
+            if (!repository.state().equals(lastState)) {
+                logger.lifecycle("Staging repository {} is {}", repositoryId, repository.state());
+                lastState = repository.state();
+                backoff.reset();
+            }
+
+            if (seenEvents >= 0) {
+                for (StagingEvent event : events.subList(Math.min(seenEvents, events.size()), events.size())) {
+                    logger.lifecycle("Staging repository {}: {}", repositoryId, event);
+                    backoff.reset();
+
+                    if (event.isFailure()) {
+                        throw new GradleException("Staging repository " + repositoryId + " failed with " + event);
+                    }
+                }
+            }
+            seenEvents = events.size();
+
+            if (repository.type().equals(targetType) && !repository.transitioning()) {
+                return;
+            }
+            sleep(backoff);
+        }
+
+        throw new GradleException("Timed out after " + MAX_WATCH_TIME.toMinutes()
+                + " minutes waiting for staging repository " + repositoryId + " to be " + targetType);
+    }
+
+    private void sleep(Backoff backoff) {
+        try {
+            backoff.sleep();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while waiting for staging repository " + repositoryId, e);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish;
+
+import com.palantir.gradle.externalpublish.CentralPortalClient.DeploymentStatus;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+public abstract class UploadCentralBundleTask extends DefaultTask {
+    private static final Duration MAX_POLL_INTERVAL = Duration.ofSeconds(30);
+
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getBundle();
+
+    @Input
+    public abstract Property<String> getCentralUrl();
+
+    @Input
+    public abstract Property<String> getDeploymentName();
+
+    @Internal
+    public abstract Property<String> getUsername();
+
+    @Internal
+    public abstract Property<String> getPassword();
+
+    @Internal
+    public abstract Property<Duration> getPollInterval();
+
+    @Internal
+    public abstract Property<Duration> getValidationTimeout();
+
+    @Internal
+    public abstract Property<PublishingMetrics> getPublishingMetrics();
+
+    public UploadCentralBundleTask() {
+        getPollInterval().convention(Duration.ofSeconds(2));
+        // Validation of large bundles can take a while, but nowhere near as long as closing a staging repo
+        getValidationTimeout().convention(Duration.ofMinutes(30));
+    }
+
+    @TaskAction
+    public final void upload() {
+        CentralPortalClient client = new CentralPortalClient(
+                URI.create(getCentralUrl().get()),
+                getUsername().get(),
+                getPassword().get());
+
+        String deploymentId = client.upload(getBundle().get().getAsFile().toPath(), getDeploymentName().get());
+        reportRequests(1);
+        getLogger().lifecycle("Uploaded Central Portal bundle as deployment {}", deploymentId);
+
+        Instant deadline = Instant.now().plus(getValidationTimeout().get());
+        Backoff backoff = new Backoff(getPollInterval().get(), MAX_POLL_INTERVAL);
+        String lastState = null;
+
+        while (true) {
+            DeploymentStatus status = client.status(deploymentId);
+            reportRequests(1);
+
+            if (!status.state().equals(lastState)) {
+                getLogger().lifecycle("Deployment {} is {}", deploymentId, status.state());
+                lastState = status.state();
+                backoff.reset();
+            }
+
+            if (status.isFailed()) {
+                throw new GradleException(
+                        "Central Portal deployment " + deploymentId + " failed validation: " + status.errors());
+            }
+
+            if (status.isValidated()) {
+                return;
+            }
+
+            if (Instant.now().isAfter(deadline)) {
+                throw new GradleException("Central Portal deployment " + deploymentId + " was not validated within "
+                        + getValidationTimeout().get() + ", last state was " + status.state());
+            }
+
+            try {
+                backoff.sleep();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GradleException("Interrupted while waiting for deployment " + deploymentId, e);
+            }
+        }
+    }
+
+    private void reportRequests(int requests) {
+        if (getPublishingMetrics().isPresent()) {
+            getPublishingMetrics().get().requests(getPath(), requests, 0);
+        }
+    }
+}
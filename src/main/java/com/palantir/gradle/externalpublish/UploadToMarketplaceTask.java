@@ -0,0 +1,218 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish;
+
+import com.palantir.gradle.externalpublish.PublishingMetrics.Kind;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import javax.inject.Inject;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+import org.gradle.workers.WorkerExecutor;
+
+/**
+ * Uploads an IntelliJ plugin to the JetBrains Marketplace, streaming it from disk and retrying with backoff when the
+ * upload fails part way or the Marketplace is unavailable. The upload runs in the background, so Gradle can get on with
+ * other tasks, like closing the Sonatype staging repository, at the same time.
+ */
+public abstract class UploadToMarketplaceTask extends DefaultTask {
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getPlugin();
+
+    @Input
+    public abstract Property<String> getMarketplaceUrl();
+
+    /** The channels to upload to, where {@code default} is the stable channel. */
+    @Input
+    public abstract ListProperty<String> getChannels();
+
+    @Internal
+    public abstract Property<String> getToken();
+
+    @Internal
+    public abstract Property<Integer> getRetries();
+
+    @Internal
+    public abstract Property<Duration> getInitialBackoff();
+
+    @Internal
+    public abstract Property<Duration> getMaxBackoff();
+
+    /** Identifies the publication in the publishing metrics. */
+    @Internal
+    public abstract Property<String> getPublicationPath();
+
+    @Internal
+    public abstract Property<PublishingMetrics> getPublishingMetrics();
+
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
+    @TaskAction
+    public final void upload() {
+        getWorkerExecutor().noIsolation().submit(Upload.class, parameters -> {
+            parameters.getTaskPath().set(getPath());
+            parameters.getPlugin().set(getPlugin());
+            parameters.getMarketplaceUrl().set(getMarketplaceUrl());
+            parameters.getChannels().set(getChannels());
+            parameters.getToken().set(getToken());
+            parameters.getRetries().set(getRetries());
+            parameters.getInitialBackoff().set(getInitialBackoff());
+            parameters.getMaxBackoff().set(getMaxBackoff());
+            parameters.getPublicationPath().set(getPublicationPath());
+            parameters.getPublishingMetrics().set(getPublishingMetrics());
+        });
+    }
+
+    public interface UploadParameters extends WorkParameters {
+        Property<String> getTaskPath();
+
+        RegularFileProperty getPlugin();
+
+        Property<String> getMarketplaceUrl();
+
+        ListProperty<String> getChannels();
+
+        Property<String> getToken();
+
+        Property<Integer> getRetries();
+
+        Property<Duration> getInitialBackoff();
+
+        Property<Duration> getMaxBackoff();
+
+        Property<String> getPublicationPath();
+
+        Property<PublishingMetrics> getPublishingMetrics();
+    }
+
+    public abstract static class Upload implements WorkAction<UploadParameters> {
+        private static final Logger log = Logging.getLogger(UploadToMarketplaceTask.class);
+
+        @Override
+        public final void execute() {
+            UploadParameters parameters = getParameters();
+            String taskPath = parameters.getTaskPath().get();
+            Path plugin = parameters.getPlugin().get().getAsFile().toPath();
+            String xmlId = MarketplaceClient.xmlId(plugin);
+            MarketplaceClient client = new MarketplaceClient(
+                    URI.create(parameters.getMarketplaceUrl().get()),
+                    parameters.getToken().get());
+
+            // Measured here rather than around the task, as the task is done as soon as it has handed over the upload
+            long bytes = plugin.toFile().length();
+            PublishingMetrics metrics = parameters.getPublishingMetrics().getOrNull();
+            if (metrics != null) {
+                metrics.started(
+                        taskPath,
+                        Kind.PUBLISH,
+                        parameters.getPublicationPath().getOrNull(),
+                        "jetbrainsMarketplace",
+                        bytes,
+                        1);
+            }
+
+            for (String channel : parameters.getChannels().get()) {
+                long start = System.nanoTime();
+                uploadWithRetries(client, plugin, xmlId, channel.equals("default") ? "" : channel, metrics, taskPath);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                log.lifecycle(
+                        "Uploaded {} to the '{}' channel of the JetBrains Marketplace, {} MB in {}s ({} MB/s)",
+                        xmlId,
+                        channel,
+                        String.format("%.1f", bytes / 1e6),
+                        String.format("%.1f", seconds),
+                        String.format("%.1f", bytes / 1e6 / Math.max(seconds, 0.001)));
+            }
+
+            if (metrics != null) {
+                metrics.finished(taskPath);
+            }
+        }
+
+        private void uploadWithRetries(
+                MarketplaceClient client,
+                Path plugin,
+                String xmlId,
+                String channel,
+                PublishingMetrics metrics,
+                String taskPath) {
+            Backoff backoff = new Backoff(
+                    getParameters().getInitialBackoff().get(),
+                    getParameters().getMaxBackoff().get());
+            int retries = getParameters().getRetries().get();
+
+            for (int attempt = 0; ; attempt++) {
+                String failure;
+                try {
+                    HttpResponse<String> response = client.upload(plugin, xmlId, channel);
+                    if (metrics != null) {
+                        metrics.requests(taskPath, 1, attempt == 0 ? 0 : 1);
+                    }
+
+                    if (response.statusCode() / 100 == 2) {
+                        return;
+                    }
+
+                    failure = "HTTP " + response.statusCode() + " " + response.body();
+                    // Anything other than throttling or the Marketplace being unavailable will fail the same again
+                    if (response.statusCode() != 429 && response.statusCode() / 100 != 5) {
+                        throw new GradleException("Failed to upload " + plugin + " to the JetBrains Marketplace: "
+                                + failure);
+                    }
+                } catch (IOException e) {
+                    failure = e.toString();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new GradleException("Interrupted while uploading " + plugin, e);
+                }
+
+                if (attempt >= retries) {
+                    throw new GradleException("Failed to upload " + plugin + " to the JetBrains Marketplace after "
+                            + (attempt + 1) + " attempts: " + failure);
+                }
+
+                Duration delay = backoff.next();
+                log.lifecycle(
+                        "Retrying upload of {} in {}ms after: {}", plugin.getFileName(), delay.toMillis(), failure);
+                try {
+                    Thread.sleep(delay.toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new GradleException("Interrupted while uploading " + plugin, e);
+                }
+            }
+        }
+    }
+}
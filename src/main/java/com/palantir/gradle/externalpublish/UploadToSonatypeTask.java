@@ -0,0 +1,137 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * Uploads everything a project has published into its local staging directory to the Sonatype staging repository,
+ * using the connections shared by the whole build. Alternatively, uploads the artifacts of the project's publications
+ * straight from where they were built, signing and checksumming each one as it is read for uploading.
+ */
+public abstract class UploadToSonatypeTask extends DefaultTask {
+    @Internal
+    public abstract DirectoryProperty getRepository();
+
+    @Input
+    public abstract Property<String> getStagingRepositoryId();
+
+    /**
+     * Whether to upload the maven-metadata.xml files too, after everything else, as Gradle itself does. Other nodes
+     * sharing the staging repository use them to tell when a publication has been completely uploaded.
+     */
+    @Input
+    public abstract Property<Boolean> getUploadMetadataLast();
+
+    /** Whether to upload {@link #getSinglePassArtifacts()} rather than the local staging directory. */
+    @Input
+    public abstract Property<Boolean> getSinglePass();
+
+    /** The artifacts of every publication to upload in a single pass, by their path in the repository. */
+    @Internal
+    public abstract MapProperty<String, File> getSinglePassArtifacts();
+
+    @InputFiles
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract ConfigurableFileCollection getSinglePassArtifactFiles();
+
+    /** Signs the single pass artifacts, when publications are being signed. */
+    @Internal
+    public abstract Property<SigningKeyService> getSigningKeyService();
+
+    @Internal
+    public abstract Property<SonatypeUploadService> getUploadService();
+
+    @Internal
+    public abstract Property<PublishingMetrics> getPublishingMetrics();
+
+    /**
+     * The files to upload. Nexus works out the maven-metadata.xml files itself on release, and as they contain a
+     * timestamp, leaving them out also means the same publication is always the same set of files.
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public final FileTree getFilesToUpload() {
+        return getRepository().getAsFileTree().matching(files -> files.exclude("**/maven-metadata.xml*"));
+    }
+
+    @TaskAction
+    public final void upload() {
+        SonatypeUploadService uploadService = getUploadService().get();
+        String stagingRepositoryId = getStagingRepositoryId().get();
+
+        if (getSinglePass().get()) {
+            Map<String, Path> artifacts = new LinkedHashMap<>();
+            getSinglePassArtifacts().get().forEach((path, file) -> artifacts.put(path, file.toPath()));
+            SigningKeyService signing = getSigningKeyService().getOrNull();
+            int retries = uploadService.uploadAllInSinglePass(stagingRepositoryId, artifacts, signing);
+            int uploads = artifacts.size() * SinglePassArtifact.filesPerArtifact(signing != null);
+
+            getLogger()
+                    .info("Uploaded {} files to staging repository {} in a single pass", uploads, stagingRepositoryId);
+            if (getPublishingMetrics().isPresent()) {
+                getPublishingMetrics().get().requests(getPath(), uploads + retries, retries);
+            }
+            return;
+        }
+
+        Map<String, Path> files = filesIn(getFilesToUpload());
+        int retries = uploadService.uploadAll(stagingRepositoryId, files);
+        int uploads = files.size();
+
+        if (getUploadMetadataLast().get()) {
+            // Checksums first, so a publication is only complete once its maven-metadata.xml itself is there
+            for (String metadata : List.of("**/maven-metadata.xml.*", "**/maven-metadata.xml")) {
+                Map<String, Path> metadataFiles =
+                        filesIn(getRepository().getAsFileTree().matching(tree -> tree.include(metadata)));
+                retries += uploadService.uploadAll(stagingRepositoryId, metadataFiles);
+                uploads += metadataFiles.size();
+            }
+        }
+
+        getLogger().info("Uploaded {} files to staging repository {}", uploads, stagingRepositoryId);
+        if (getPublishingMetrics().isPresent()) {
+            getPublishingMetrics().get().requests(getPath(), uploads + retries, retries);
+        }
+    }
+
+    private static Map<String, Path> filesIn(FileTree tree) {
+        Map<String, Path> files = new LinkedHashMap<>();
+        tree.visit(file -> {
+            if (!file.isDirectory()) {
+                files.put(file.getRelativePath().getPathString(), file.getFile().toPath());
+            }
+        });
+        return files;
+    }
+}
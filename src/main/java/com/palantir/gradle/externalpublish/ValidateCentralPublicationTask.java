@@ -0,0 +1,200 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+/**
+ * Checks a publication against the rules Maven Central applies when closing a staging repository, so a bad release
+ * fails in seconds instead of after uploading everything and waiting for Sonatype to evaluate it.
+ */
+@CacheableTask
+public abstract class ValidateCentralPublicationTask extends DefaultTask {
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getPom();
+
+    /** The name of every file of the publication in the repository, including signatures. */
+    @Input
+    public abstract ListProperty<String> getPublishedFileNames();
+
+    @InputFiles
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract ConfigurableFileCollection getPublishedFiles();
+
+    @Input
+    public abstract Property<Boolean> getSigned();
+
+    /** Whether to only warn about problems, for dry runs, where nothing checks the publication afterwards. */
+    @Input
+    public abstract Property<Boolean> getWarnOnly();
+
+    @OutputFile
+    public abstract RegularFileProperty getReport();
+
+    @TaskAction
+    public final void validate() {
+        List<String> problems = new ArrayList<>();
+        Element project = parsePom(getPom().get().getAsFile());
+
+        String artifactId = checkPresent(project, "artifactId", problems);
+        String version = checkPresent(project, "version", problems);
+        checkPresent(project, "groupId", problems);
+        checkPresent(project, "name", problems);
+        checkPresent(project, "description", problems);
+        checkPresent(project, "url", problems);
+        checkEvery(project, "licenses", "license", List.of("name", "url"), problems);
+        checkEvery(project, "developers", "developer", List.of("name"), problems);
+        Element scm = child(project, "scm");
+        if (scm == null) {
+            problems.add("the POM has no <scm>");
+        } else {
+            checkPresent(scm, "url", problems);
+        }
+
+        if (version != null && version.endsWith("-SNAPSHOT")) {
+            problems.add("the version " + version + " is a snapshot");
+        }
+
+        List<String> fileNames = getPublishedFileNames().get();
+        Set<String> fileNameSet = Set.copyOf(fileNames);
+        String packaging = text(project, "packaging");
+        if (artifactId != null && version != null && (packaging == null || packaging.equals("jar"))) {
+            for (String classifier : List.of("sources", "javadoc")) {
+                String fileName = artifactId + "-" + version + "-" + classifier + ".jar";
+                if (!fileNameSet.contains(fileName)) {
+                    problems.add("there is no " + classifier + " jar " + fileName);
+                }
+            }
+        }
+
+        for (String fileName : fileNames) {
+            if (getSigned().get() && !fileName.endsWith(".asc") && !fileNameSet.contains(fileName + ".asc")) {
+                problems.add(fileName + " is not signed");
+            }
+        }
+
+        for (File file : getPublishedFiles()) {
+            // Missing files are left to the publish tasks, which already fail with a good error message
+            if (file.isFile() && file.length() == 0) {
+                problems.add(file.getName() + " is empty");
+            }
+        }
+
+        writeReport(problems);
+
+        if (problems.isEmpty()) {
+            return;
+        }
+
+        String message =
+                "Maven Central would reject " + getPath() + " because:\n  - " + String.join("\n  - ", problems);
+        if (getWarnOnly().get()) {
+            getLogger().warn(message);
+            return;
+        }
+        throw new GradleException(message);
+    }
+
+    private void writeReport(List<String> problems) {
+        File report = getReport().get().getAsFile();
+        try {
+            report.getParentFile().mkdirs();
+            Files.write(report.toPath(), problems);
+        } catch (IOException e) {
+            throw new GradleException("Failed to write " + report, e);
+        }
+    }
+
+    private static Element parsePom(File pom) {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            Document document = factory.newDocumentBuilder().parse(pom);
+            return document.getDocumentElement();
+        } catch (ParserConfigurationException | SAXException | IOException e) {
+            throw new GradleException("Failed to read the POM " + pom, e);
+        }
+    }
+
+    private static String checkPresent(Element parent, String name, List<String> problems) {
+        String value = text(parent, name);
+        if (value == null) {
+            problems.add("the POM has no <" + name + "> in <" + parent.getTagName() + ">");
+        }
+        return value;
+    }
+
+    private static void checkEvery(
+            Element project, String listName, String elementName, List<String> required, List<String> problems) {
+        Element list = child(project, listName);
+        List<Element> elements = list == null ? List.of() : children(list, elementName);
+        if (elements.isEmpty()) {
+            problems.add("the POM has no <" + elementName + "> in <" + listName + ">");
+        }
+        elements.forEach(element -> required.forEach(name -> checkPresent(element, name, problems)));
+    }
+
+    /** The trimmed text of a direct child element, or null if it is missing or blank. */
+    private static String text(Element parent, String name) {
+        Element child = child(parent, name);
+        if (child == null || child.getTextContent().isBlank()) {
+            return null;
+        }
+        return child.getTextContent().trim();
+    }
+
+    private static Element child(Element parent, String name) {
+        List<Element> children = children(parent, name);
+        return children.isEmpty() ? null : children.get(0);
+    }
+
+    private static List<Element> children(Element parent, String name) {
+        List<Element> children = new ArrayList<>();
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element && ((Element) node).getTagName().equals(name)) {
+                children.add((Element) node);
+            }
+        }
+        return children;
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.palantir.gradle.externalpublish
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+import spock.lang.Specification
+import spock.lang.Timeout
+
+@Timeout(30)
+class AdaptiveUploadLimiterSpec extends Specification {
+    private static final long MEGABYTE = 1024 * 1024
+
+    // Every upload waiting on the limiter blocks a thread of its own
+    ExecutorService uploadThreads = Executors.newCachedThreadPool()
+
+    def cleanup() {
+        uploadThreads.shutdownNow()
+    }
+
+    def 'halves the concurrency limit once per round trip when throttled'() {
+        setup:
+        def limiter = new AdaptiveUploadLimiter(8, 0, false)
+        8.times { limiter.acquire(MEGABYTE) }
+
+        when:
+        limiter.throttled(TimeUnit.SECONDS.toNanos(10))
+        // Still within the round trip of the first upload to be throttled, so the same push back from the remote
+        limiter.throttled(TimeUnit.SECONDS.toNanos(10))
+
+        then:
+        limiter.concurrencyLimit() == 4
+        limiter.throttledUploads() == 2
+    }
+
+    def 'never limits uploads to fewer than one at once'() {
+        setup:
+        def limiter = new AdaptiveUploadLimiter(8, 0, false)
+        8.times { limiter.acquire(MEGABYTE) }
+
+        when:
+        // No round trip to wait for, so every one of these backs off
+        4.times { limiter.throttled(0) }
+
+        then:
+        limiter.concurrencyLimit() == 1
+        limiter.lowestConcurrencyLimit() == 1
+    }
+
+    def 'grows the concurrency limit back by about one per round of successful uploads, up to the maximum'() {
+        setup:
+        def limiter = new AdaptiveUploadLimiter(8, 0, false)
+        8.times { limiter.acquire(MEGABYTE) }
+        limiter.throttled(0)
+
+        when:
+        // 4 + 1/4 + 1/4.25 + ... passes 5 on the fifth success
+        4.times { limiter.succeeded(MEGABYTE, TimeUnit.MILLISECONDS.toNanos(10)) }
+
+        then:
+        limiter.concurrencyLimit() == 4
+
+        when:
+        limiter.succeeded(MEGABYTE, TimeUnit.MILLISECONDS.toNanos(10))
+
+        then:
+        limiter.concurrencyLimit() == 5
+
+        when:
+        100.times {
+            limiter.acquire(MEGABYTE)
+            limiter.succeeded(MEGABYTE, TimeUnit.MILLISECONDS.toNanos(10))
+        }
+
+        then:
+        limiter.concurrencyLimit() == 8
+        limiter.lowestConcurrencyLimit() == 4
+    }
+
+    def 'backs off when an upload takes much longer than usual for its size'() {
+        setup:
+        def limiter = new AdaptiveUploadLimiter(8, 0, false)
+        10.times {
+            limiter.acquire(MEGABYTE)
+            limiter.succeeded(MEGABYTE, TimeUnit.MILLISECONDS.toNanos(10))
+        }
+
+        when:
+        // Ten times the size at ten times the latency is as fast as usual
+        limiter.acquire(10 * MEGABYTE)
+        limiter.succeeded(10 * MEGABYTE, TimeUnit.MILLISECONDS.toNanos(100))
+
+        then:
+        limiter.latencySpikes() == 0
+        limiter.concurrencyLimit() == 8
+
+        when:
+        limiter.acquire(MEGABYTE)
+        limiter.succeeded(MEGABYTE, TimeUnit.MILLISECONDS.toNanos(100))
+
+        then:
+        limiter.latencySpikes() == 1
+        limiter.concurrencyLimit() == 4
+    }
+
+    def 'holds uploads over the concurrency limit back until another finishes'() {
+        setup:
+        def limiter = new AdaptiveUploadLimiter(1, 0, false)
+        limiter.acquire(MEGABYTE)
+
+        when:
+        def second = CompletableFuture.runAsync({ limiter.acquire(MEGABYTE) }, uploadThreads)
+        second.get(200, TimeUnit.MILLISECONDS)
+
+        then:
+        thrown(TimeoutException)
+
+        when:
+        limiter.failed()
+        second.get(5, TimeUnit.SECONDS)
+
+        then:
+        noExceptionThrown()
+    }
+
+    def 'starts no more uploads per second than its token bucket allows, after a burst of one second'() {
+        setup:
+        def limiter = new AdaptiveUploadLimiter(100, 10, false)
+
+        when:
+        long start = System.nanoTime()
+        20.times {
+            limiter.acquire(MEGABYTE)
+            limiter.succeeded(MEGABYTE, 0)
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+
+        then:
+        // The first 10 start at once, the other 10 at 10 a second
+        elapsedMillis >= 900
+        elapsedMillis < 5000
+    }
+
+    def 'starts the largest waiting upload next when configured to'() {
+        setup:
+        def limiter = new AdaptiveUploadLimiter(1, 0, true)
+        limiter.acquire(MEGABYTE)
+        List<Long> started = new CopyOnWriteArrayList<>()
+
+        when:
+        def uploads = [10 * MEGABYTE, 1000 * MEGABYTE, 100 * MEGABYTE].collect { long bytes ->
+            def upload = CompletableFuture.runAsync({
+                limiter.acquire(bytes)
+                started << bytes
+            }, uploadThreads)
+            // So that every upload is waiting before the first one finishes
+            Thread.sleep(100)
+            return upload
+        }
+        limiter.succeeded(MEGABYTE, 0)
+        uploads.each { upload ->
+            waitUntil { started.size() > uploads.indexOf(upload) }
+            limiter.succeeded(started.last(), 0)
+        }
+        uploads*.get(5, TimeUnit.SECONDS)
+
+        then:
+        started == [1000 * MEGABYTE, 100 * MEGABYTE, 10 * MEGABYTE]
+    }
+
+    private static void waitUntil(Closure<Boolean> condition) {
+        while (!condition()) {
+            Thread.sleep(10)
+        }
+    }
+}
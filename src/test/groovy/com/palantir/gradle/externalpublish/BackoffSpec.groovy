@@ -0,0 +1,57 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.palantir.gradle.externalpublish
+
+import java.time.Duration
+import spock.lang.Specification
+
+class BackoffSpec extends Specification {
+    def 'doubles each delay up to the maximum, jittering each between half and all of the step'() {
+        setup:
+        def backoff = new Backoff(Duration.ofMillis(100), Duration.ofMillis(800))
+
+        when:
+        List<Long> delays = (1..6).collect { backoff.next().toMillis() }
+        List<Long> steps = [100, 200, 400, 800, 800, 800]
+
+        then:
+        delays.indices.every { delays[it] >= steps[it] / 2 && delays[it] <= steps[it] }
+    }
+
+    def 'goes back to the initial delay when reset'() {
+        setup:
+        def backoff = new Backoff(Duration.ofMillis(100), Duration.ofSeconds(10))
+        5.times { backoff.next() }
+
+        when:
+        backoff.reset()
+
+        then:
+        backoff.next().toMillis() <= 100
+    }
+
+    def 'spreads concurrent pollers out'() {
+        setup:
+        List<Long> delays = (1..100).collect {
+            new Backoff(Duration.ofSeconds(1), Duration.ofSeconds(1)).next().toMillis()
+        }
+
+        expect:
+        delays.toSet().size() > 1
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish
+
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.zip.ZipFile
+import nebula.test.IntegrationSpec
+import nebula.test.functional.ExecutionResult
+
+class CentralPortalBundleIntegrationSpec extends IntegrationSpec {
+    private HttpServer centralPortal
+    private List<String> requests = new CopyOnWriteArrayList<>()
+    private List<String> statuses
+
+    def setup() {
+        statuses = ['PENDING', 'VALIDATING', 'PUBLISHING']
+
+        centralPortal = HttpServer.create(new InetSocketAddress('localhost', 0), 0)
+        centralPortal.createContext('/api/v1/publisher/upload') { HttpExchange exchange ->
+            requests << "${exchange.requestMethod} upload ${exchange.requestHeaders.getFirst('Authorization')}".toString()
+            exchange.requestBody.bytes
+            respond(exchange, 201, 'deployment-1')
+        }
+        centralPortal.createContext('/api/v1/publisher/status') { HttpExchange exchange ->
+            requests << "${exchange.requestMethod} status ${exchange.requestURI.query}".toString()
+            String state = statuses.size() > 1 ? statuses.remove(0) : statuses[0]
+            String errors = state == 'FAILED' ? ', "errors": {"pkg:maven/group/jar": ["Missing signature"]}' : ''
+            respond(exchange, 200, """{"deploymentId": "deployment-1", "deploymentState": "${state}"${errors}}""")
+        }
+        centralPortal.start()
+
+        // language=gradle
+        settingsFile << '''
+            rootProject.name = 'root'
+            include 'jar'
+        '''.stripIndent(true)
+
+        // language=gradle
+        buildFile << '''
+            apply plugin: 'com.palantir.external-publish'
+
+            externalPublish {
+                centralPortalBundle = true
+            }
+
+            tasks.named('uploadCentralBundle') {
+                pollInterval = java.time.Duration.ofMillis(10)
+            }
+
+            allprojects {
+                group = 'group'
+                version = 'version'
+
+                repositories {
+                    mavenCentral()
+                }
+            }
+        '''.stripIndent(true)
+
+        // language=gradle
+        file('jar/build.gradle') << '''
+            apply plugin: 'com.palantir.external-publish-jar'
+        '''.stripIndent(true)
+        writeHelloWorld(file('jar'))
+    }
+
+    def cleanup() {
+        centralPortal.stop(0)
+    }
+
+    def 'uploads all publications as a single bundle and waits for validation'() {
+        when:
+        def result = runWithCentralPortal('publish')
+
+        then:
+        result.wasExecuted(':bundleCentralPublications')
+        result.wasSkipped(':initializeSonatypeStagingRepository')
+        result.wasSkipped(':jar:publishMavenPublicationToSonatypeRepository')
+
+        requests.first() == 'POST upload Bearer ' + Base64.encoder.encodeToString('user:pass'.bytes)
+        requests.count { it.startsWith('POST status id=deployment-1') } == 3
+        result.standardOutput.contains('Deployment deployment-1 is VALIDATING')
+
+        def entries = new ZipFile(file('build/external-publish/central-bundle.zip')).withCloseable { zip ->
+            zip.entries().collect { it.name }
+        }
+        entries.contains('group/jar/version/jar-version.jar')
+        entries.contains('group/jar/version/jar-version.jar.asc')
+        entries.contains('group/jar/version/jar-version.jar.sha1')
+        entries.contains('group/jar/version/jar-version.pom')
+        entries.contains('group/jar/version/jar-version-sources.jar')
+        entries.contains('group/jar/version/jar-version-javadoc.jar')
+        entries.every { !it.contains('maven-metadata') }
+    }
+
+    def 'fails with the validation errors when the deployment fails'() {
+        setup:
+        statuses = ['VALIDATING', 'FAILED']
+
+        when:
+        def result = runWithCentralPortal('publish')
+
+        then:
+        !result.success
+        result.failure.cause.cause.message.contains('Missing signature')
+    }
+
+    def 'does not upload a bundle when not on a tag build'() {
+        when:
+        def result = runTasksSuccessfully('publish', '--dry-run')
+
+        then:
+        !result.standardOutput.contains(':uploadCentralBundle')
+        requests.isEmpty()
+    }
+
+    private ExecutionResult runWithCentralPortal(String... tasks) {
+        def privateKey = getClass().getClassLoader()
+                .getResourceAsStream('testing-gpg-key.pgp')
+                .getBytes()
+
+        return runTasks(([
+                '-P__TESTING=true',
+                '-P__TESTING_CIRCLE_TAG=tag',
+                "-P__TESTING_SONATYPE_CENTRAL_URL=http://localhost:${centralPortal.address.port}/",
+                '-P__TESTING_SONATYPE_USERNAME=user',
+                '-P__TESTING_SONATYPE_PASSWORD=pass',
+                '-P__TESTING_GPG_SIGNING_KEY_ID=4F33301C',
+                "-P__TESTING_GPG_SIGNING_KEY=${Base64.getEncoder().encodeToString(privateKey)}",
+                '-P__TESTING_GPG_SIGNING_KEY_PASSWORD=password'] + tasks.toList()) as String[])
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8)
+        exchange.sendResponseHeaders(status, bytes.length)
+        exchange.responseBody.withCloseable { it.write(bytes) }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish
+
+import groovy.json.JsonOutput
+import groovy.json.JsonSlurper
+import nebula.test.IntegrationTestKitSpec
+import org.gradle.testkit.runner.BuildResult
+import spock.lang.Requires
+import spock.lang.Shared
+import spock.lang.Unroll
+
+/**
+ * Measures how the cost of configuring a build grows with the number of projects applying our plugins, which is what
+ * everyone pays on every IDE sync. Each project added to a bigger build must cost no more than one added to a smaller
+ * build, so nothing grows faster than the number of projects. Run with {@code ./gradlew test -Pbenchmark}, and add
+ * {@code -PrecordBaseline} to re-record the baseline that later runs on the same machine are also compared against.
+ */
+@Requires({ System.getProperty('externalPublish.benchmark') })
+class ConfigurationBenchmarkSpec extends IntegrationTestKitSpec {
+    private static final List<String> PLUGIN_TYPES = ['jar', 'dist', 'custom']
+    private static final List<Integer> PROJECT_COUNTS = [10, 100, 500, 1000]
+    private static final int MEASURED_RUNS = 3
+    // Timings and heap are noisy, the number of tasks realized is not
+    private static final double THRESHOLD = 0.2
+    private static final long MIN_SLACK_MILLIS = 200
+    private static final long MIN_SLACK_HEAP_MB = 50
+
+    @Shared
+    Map<String, Map<String, Long>> results = [:]
+
+    @Unroll
+    def 'configuring #projectCount projects has not regressed'() {
+        setup:
+        generateBuild(projectCount)
+
+        when:
+        // Warm up the daemon, so we are not measuring class loading and JIT compilation
+        runTasks('help')
+        List<Map<String, Long>> runs = (1..MEASURED_RUNS).collect { measure(runTasks('help')) }
+        Map<String, Long> result = [
+                configurationMillis: runs*.configurationMillis.min(),
+                heapMb: runs*.heapMb.min(),
+                realizedTasks: runs*.realizedTasks.max()]
+        results[projectCount.toString()] = result
+        println "${projectCount} projects: ${result}"
+
+        then:
+        // Projects alternate between the plugin types, so on average every added project should cost the same
+        int index = PROJECT_COUNTS.indexOf(projectCount)
+        if (index >= 2 && results.keySet().containsAll(PROJECT_COUNTS.take(index)*.toString())) {
+            assert addsProjectsAtTheSameCost(index, 'realizedTasks', 0)
+            assert addsProjectsAtTheSameCost(index, 'configurationMillis', MIN_SLACK_MILLIS)
+            assert addsProjectsAtTheSameCost(index, 'heapMb', MIN_SLACK_HEAP_MB)
+        }
+
+        Map<String, Long> baseline = baseline()[projectCount.toString()]
+        if (baseline != null) {
+            assert result.realizedTasks <= baseline.realizedTasks
+            assert result.configurationMillis <= allowed(baseline.configurationMillis, MIN_SLACK_MILLIS)
+            assert result.heapMb <= allowed(baseline.heapMb, MIN_SLACK_HEAP_MB)
+        }
+
+        where:
+        projectCount << PROJECT_COUNTS
+    }
+
+    def cleanupSpec() {
+        String baselineFile = System.getProperty('externalPublish.benchmark.recordBaseline')
+        if (baselineFile != null) {
+            new File(baselineFile).text = JsonOutput.prettyPrint(JsonOutput.toJson(baseline() + results)) + '\n'
+        }
+    }
+
+    private void generateBuild(int projectCount) {
+        // language=properties
+        new File(projectDir, 'gradle.properties') << '''
+            org.gradle.jvmargs=-Xmx2g
+        '''.stripIndent(true)
+
+        // language=gradle
+        settingsFile << '''
+            rootProject.name = 'root'
+
+            long configurationStart = System.nanoTime()
+            long configurationNanos = 0
+            def realizedTasks = new java.util.concurrent.atomic.AtomicInteger()
+
+            gradle.allprojects {
+                tasks.configureEach { realizedTasks.incrementAndGet() }
+            }
+            gradle.projectsEvaluated {
+                configurationNanos = System.nanoTime() - configurationStart
+            }
+            gradle.taskGraph.whenReady {
+                System.gc()
+                long heapBytes = Runtime.runtime.totalMemory() - Runtime.runtime.freeMemory()
+                println "BENCHMARK configurationMillis=${configurationNanos.intdiv(1_000_000)} " +
+                        "heapMb=${heapBytes.intdiv(1_000_000)} realizedTasks=${realizedTasks.get()}"
+            }
+        '''.stripIndent(true)
+
+        // language=gradle
+        buildFile << '''
+            plugins {
+                id 'com.palantir.external-publish'
+            }
+
+            allprojects {
+                group = 'group'
+                version = 'version'
+            }
+        '''.stripIndent(true)
+
+        projectCount.times { index ->
+            String type = PLUGIN_TYPES[index % PLUGIN_TYPES.size()]
+            String name = "${type}-${index}"
+            settingsFile << "include '${name}'\n"
+
+            def subprojectDir = new File(projectDir, name)
+            subprojectDir.mkdirs()
+            new File(subprojectDir, 'build.gradle') << """
+                plugins {
+                    id 'com.palantir.external-publish-${type}'
+                }
+            """.stripIndent(true) + subprojectConfiguration(type)
+        }
+    }
+
+    private static String subprojectConfiguration(String type) {
+        if (type == 'dist') {
+            // language=gradle
+            return '''
+                tasks.register('distTar', Tar) {
+                    from 'build.gradle'
+                }
+            '''.stripIndent(true)
+        }
+
+        if (type == 'custom') {
+            // language=gradle
+            return '''
+                externalPublishing {
+                    publication('foo') {
+                        artifactId 'foo'
+                        artifact file('build.gradle')
+                    }
+                }
+            '''.stripIndent(true)
+        }
+
+        return ''
+    }
+
+    private static Map<String, Long> measure(BuildResult result) {
+        def matcher = result.output =~ /BENCHMARK configurationMillis=(\d+) heapMb=(\d+) realizedTasks=(\d+)/
+        assert matcher.find()
+        return [
+                configurationMillis: matcher.group(1) as long,
+                heapMb: matcher.group(2) as long,
+                realizedTasks: matcher.group(3) as long]
+    }
+
+    /** Whether the projects added since the previous build cost no more each than those added before that. */
+    private boolean addsProjectsAtTheSameCost(int index, String metric, long minSlack) {
+        Map<String, Long> current = results[PROJECT_COUNTS[index].toString()]
+        Map<String, Long> previous = results[PROJECT_COUNTS[index - 1].toString()]
+        Map<String, Long> earlier = results[PROJECT_COUNTS[index - 2].toString()]
+
+        int added = PROJECT_COUNTS[index] - PROJECT_COUNTS[index - 1]
+        int addedEarlier = PROJECT_COUNTS[index - 1] - PROJECT_COUNTS[index - 2]
+        long cost = current[metric] - previous[metric]
+        long earlierCost = previous[metric] - earlier[metric]
+        return cost <= allowed((long) (earlierCost * added / addedEarlier), minSlack)
+    }
+
+    private static long allowed(long baseline, long minSlack) {
+        return baseline + Math.max(minSlack, (long) (baseline * THRESHOLD))
+    }
+
+    private Map<String, Map<String, Long>> baseline() {
+        def baselineJson = getClass().getClassLoader().getResourceAsStream('configuration-benchmark-baseline.json')
+        return baselineJson == null ? [:] : new JsonSlurper().parse(baselineJson) as Map
+    }
+}
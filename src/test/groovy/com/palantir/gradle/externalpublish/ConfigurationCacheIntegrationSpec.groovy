@@ -0,0 +1,166 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish
+
+import nebula.test.IntegrationTestKitSpec
+import org.gradle.testkit.runner.BuildResult
+import spock.lang.Unroll
+
+class ConfigurationCacheIntegrationSpec extends IntegrationTestKitSpec {
+    private static final List<String> PLUGIN_TYPES =
+            ['jar', 'dist', 'application-dist', 'gradle-plugin', 'conjure', 'intellij', 'custom']
+
+    def setup() {
+        // language=gradle
+        settingsFile << '''
+            rootProject.name = 'root'
+        '''.stripIndent(true)
+
+        // language=gradle
+        buildFile << '''
+            buildscript {
+                repositories {
+                    gradlePluginPortal()
+                    mavenCentral()
+                }
+
+                dependencies {
+                    classpath 'com.gradle.publish:plugin-publish-plugin:1.3.0'
+                    classpath 'com.palantir.gradle.conjure:gradle-conjure:5.51.0'
+                }
+            }
+
+            plugins {
+                id 'com.palantir.external-publish'
+            }
+
+            allprojects {
+                group = 'group'
+                version = 'version'
+
+                repositories {
+                    mavenCentral()
+                }
+
+                // Only the task graph and the onlyIf specs matter here, not actually publishing anything
+                afterEvaluate {
+                    tasks.configureEach {
+                        setActions([])
+                    }
+                }
+            }
+        '''.stripIndent(true)
+    }
+
+    @Unroll
+    def '#type plugin is compatible with the configuration cache on #buildType builds'() {
+        setup:
+        def subprojectDir = addSubproject(type, """
+            plugins {
+                id 'com.palantir.external-publish-${type}'
+            }
+        """.stripIndent(true))
+        writeHelloWorld(subprojectDir)
+        configureSubproject(type, subprojectDir)
+
+        when:
+        BuildResult first = runWithConfigurationCache(extraArgs)
+        BuildResult second = runWithConfigurationCache(extraArgs)
+
+        then:
+        first.output.contains('Configuration cache entry stored')
+        second.output.contains('Configuration cache entry reused')
+
+        where:
+        [type, buildType] << [PLUGIN_TYPES, ['tag', 'PR']].combinations()
+        extraArgs = buildType == 'tag' ? ['-P__TESTING_CIRCLE_TAG=tag'] : []
+    }
+
+    private BuildResult runWithConfigurationCache(List<String> extraArgs) {
+        def privateKey = getClass().getClassLoader()
+                .getResourceAsStream('testing-gpg-key.pgp')
+                .getBytes()
+
+        return runTasks(([
+                'publish',
+                '--configuration-cache',
+                '-P__TESTING=true',
+                '-P__TESTING_GPG_SIGNING_KEY_ID=4F33301C',
+                "-P__TESTING_GPG_SIGNING_KEY=${Base64.getEncoder().encodeToString(privateKey)}".toString(),
+                '-P__TESTING_GPG_SIGNING_KEY_PASSWORD=password'] + extraArgs) as String[])
+    }
+
+    private void configureSubproject(String type, File subprojectDir) {
+        def subprojectBuildGradle = new File(subprojectDir, 'build.gradle')
+
+        if (type == 'dist') {
+            // language=gradle
+            subprojectBuildGradle << '''
+                tasks.register('distTar', Tar) {
+                    archiveFileName = 'foo'
+                    destinationDirectory = file('build')
+                    compression = Compression.GZIP
+                    from 'build.gradle'
+                }
+            '''.stripIndent(true)
+        }
+
+        if (type == 'gradle-plugin') {
+            // language=gradle
+            subprojectBuildGradle << '''
+                gradlePlugin {
+                    plugins {
+                        test {
+                            id = 'com.palantir.testplugin'
+                            implementationClass = 'com.palantir.external.TestPlugin'
+                        }
+                    }
+                }
+            '''.stripIndent(true)
+        }
+
+        if (type == 'conjure') {
+            new File(subprojectDir, 'conjure-objects').mkdirs()
+            settingsFile << "include '${type}:conjure-objects'\n"
+            def conjureDir = new File(subprojectDir, 'src/main/conjure')
+            conjureDir.mkdirs()
+            new File(conjureDir, 'api.yml') << '{}'
+        }
+
+        if (type == 'intellij') {
+            // language=gradle
+            subprojectBuildGradle << '''
+                intellij {
+                    pluginName = 'foo'
+                    version = '2024.1'
+                }
+            '''.stripIndent(true)
+        }
+
+        if (type == 'custom') {
+            // language=gradle
+            subprojectBuildGradle << '''
+                externalPublishing {
+                    publication('foo') {
+                        artifactId 'foo'
+                        artifact file('build.gradle')
+                    }
+                }
+            '''.stripIndent(true)
+        }
+    }
+}
@@ -0,0 +1,443 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish
+
+import groovy.io.FileType
+import groovy.json.JsonSlurper
+import nebula.test.IntegrationSpec
+import nebula.test.functional.ExecutionResult
+
+class DryRunIntegrationSpec extends IntegrationSpec {
+    def setup() {
+        // language=gradle
+        settingsFile << '''
+            rootProject.name = 'root'
+            include 'jar'
+        '''.stripIndent(true)
+
+        // language=gradle
+        buildFile << '''
+            apply plugin: 'com.palantir.external-publish'
+
+            allprojects {
+                group = 'group'
+                version = 'version'
+
+                repositories {
+                    mavenCentral()
+                }
+            }
+        '''.stripIndent(true)
+
+        // language=gradle
+        file('jar/build.gradle') << '''
+            apply plugin: 'com.palantir.external-publish-jar'
+        '''.stripIndent(true)
+        writeHelloWorld(file('jar'))
+    }
+
+    def 'opens, uploads to, closes and releases a simulated staging repository'() {
+        when:
+        def result = runDryRun('publish')
+
+        then:
+        result.wasExecuted(':initializeSonatypeStagingRepository')
+        result.wasExecuted(':jar:publishMavenPublicationToSonatypeRepository')
+        result.wasExecuted(':closeSonatypeStagingRepository')
+        result.wasExecuted(':releaseSonatypeStagingRepository')
+
+        def manifest = new JsonSlurper().parse(file('build/external-publish/dry-run/manifest.json'))
+        def jar = manifest.files.find { it.path == 'group/jar/version/jar-version.jar' }
+        jar.signed
+        jar.sha256 == file('jar/build/libs/jar-version.jar').bytes.digest('SHA-256')
+        manifest.files*.path.contains('group/jar/version/jar-version.pom')
+
+        def requests = file('build/external-publish/dry-run/requests.log').readLines()*.split(' ')
+        def order = requests.collect { it[1] + ' ' + it[2] }
+        // Looks for a staging repository a previous attempt left open before opening a new one
+        order.contains('GET /staging/profile_repositories')
+        order.indexOf('GET /staging/profile_repositories') < order.indexOf('POST /staging/profiles/simulated/start')
+        order.indexOf('POST /staging/profiles/simulated/start') < order.indexOf(
+                'PUT /staging/deployByRepositoryId/simulated-1/group/jar/version/jar-version.jar')
+        order.indexOf('PUT /staging/deployByRepositoryId/simulated-1/group/jar/version/jar-version.jar') <
+                order.indexOf('POST /staging/bulk/close')
+        order.indexOf('POST /staging/bulk/close') < order.indexOf('POST /staging/bulk/promote')
+
+        // Releasing drops the repository, which the release task takes as it having been released
+        requests.any { it[1] == 'GET' && it[2] == '/staging/repository/simulated-1' && it[3] == '404' }
+        result.standardOutput.contains('Staging repository simulated-1 has been released and dropped')
+    }
+
+    def 'holds every request back by the configured latency'() {
+        setup:
+        // language=gradle
+        buildFile << '''
+            externalPublish {
+                dryRunLatency = java.time.Duration.ofMillis(50)
+                dryRunBandwidth = 1_000_000
+            }
+        '''.stripIndent(true)
+
+        when:
+        runDryRun('publish')
+
+        then:
+        def durations = file('build/external-publish/dry-run/requests.log').readLines()
+                .collect { (it.split(' ')[4] - 'ms') as int }
+        durations.every { it >= 50 }
+    }
+
+    def 'uploads through connections shared by every project when pooling uploads'() {
+        setup:
+        settingsFile << "include 'other'\n"
+        file('other/build.gradle') << "apply plugin: 'com.palantir.external-publish-jar'\n"
+        writeHelloWorld(file('other'))
+
+        // language=gradle
+        buildFile << '''
+            externalPublish {
+                pooledSonatypeUploads = true
+            }
+        '''.stripIndent(true)
+
+        when:
+        def result = runDryRun('publish', '--parallel')
+
+        then:
+        result.wasSkipped(':jar:publishMavenPublicationToSonatypeRepository')
+        result.wasExecuted(':jar:uploadToSonatype')
+        result.wasExecuted(':other:uploadToSonatype')
+        result.standardOutput.contains('to Sonatype through one shared connection pool')
+
+        def manifest = new JsonSlurper().parse(file('build/external-publish/dry-run/manifest.json'))
+        manifest.files.find { it.path == 'group/jar/version/jar-version.jar' }.signed
+        manifest.files.find { it.path == 'group/other/version/other-version.jar' }.signed
+        manifest.files.every { !it.path.contains('maven-metadata') }
+        manifest.connections < manifest.requests / 4
+    }
+
+    def 'backs off and retries pooled uploads when the remote throttles them'() {
+        setup:
+        // language=gradle
+        buildFile << '''
+            externalPublish {
+                pooledSonatypeUploads = true
+                maxConcurrentUploads = 16
+                uploadInitialBackoff = java.time.Duration.ofMillis(10)
+                uploadMaxBackoff = java.time.Duration.ofMillis(100)
+                dryRunLatency = java.time.Duration.ofMillis(50)
+                dryRunConcurrencyLimit = 2
+            }
+        '''.stripIndent(true)
+
+        when:
+        def result = runDryRun('publish')
+
+        then:
+        result.standardOutput.contains('Sonatype throttled')
+
+        def manifest = new JsonSlurper().parse(file('build/external-publish/dry-run/manifest.json'))
+        manifest.throttled > 0
+        manifest.files.find { it.path == 'group/jar/version/jar-version.jar' }.signed
+        manifest.files*.path.contains('group/jar/version/jar-version.pom')
+    }
+
+    def 'uploads the largest files first when configured to'() {
+        setup:
+        // language=gradle
+        buildFile << '''
+            externalPublish {
+                pooledSonatypeUploads = true
+                largestUploadsFirst = true
+                maxConcurrentUploads = 1
+            }
+        '''.stripIndent(true)
+
+        when:
+        def result = runDryRun('publish')
+
+        then:
+        result.standardOutput.contains('running on its own for the last')
+
+        def published = []
+        file('jar/build/external-publish/sonatype-upload-repository').eachFileRecurse(FileType.FILES) {
+            published << it
+        }
+        def largest = published.findAll { !it.name.contains('maven-metadata') }.max { it.length() }
+        def uploads = file('build/external-publish/dry-run/requests.log').readLines()*.split(' ')
+                .findAll { it[1] == 'PUT' }
+                .collect { it[2] }
+        uploads.first().endsWith('/' + largest.name)
+
+        def metrics = new JsonSlurper().parse(file('build/external-publish/publishing-metrics.json'))
+        metrics.uploads.lastTask != null
+        metrics.uploads.makespanMillis >= metrics.uploads.lastAloneMillis
+    }
+
+    def 'signs, checksums and uploads every artifact in a single pass when configured to'() {
+        setup:
+        // language=gradle
+        buildFile << '''
+            externalPublish {
+                pooledSonatypeUploads = true
+                singlePassUploads = true
+            }
+        '''.stripIndent(true)
+
+        when:
+        def result = runDryRun('build', 'publish')
+
+        then:
+        result.wasSkipped(':jar:signMavenPublication')
+        result.wasSkipped(':jar:publishMavenPublicationToSonatypeUploadRepository')
+        result.wasExecuted(':jar:uploadToSonatype')
+        // Nor does build read every artifact again to copy it into ~/.m2
+        !result.standardOutput.contains(':jar:publishMavenPublicationToMavenLocal')
+
+        def uploads = file('build/external-publish/dry-run/requests.log').readLines()*.split(' ')
+                .findAll { it[1] == 'PUT' }
+                .collect { it[2] }
+        ['', '.asc', '.md5', '.sha1', '.sha256', '.sha512', '.asc.sha512'].every { suffix ->
+            uploads.any { it.endsWith('/group/jar/version/jar-version.jar' + suffix) }
+        }
+
+        def manifest = new JsonSlurper().parse(file('build/external-publish/dry-run/manifest.json'))
+        manifest.files.find { it.path == 'group/jar/version/jar-version.jar' }.signed
+        manifest.files.find { it.path == 'group/jar/version/jar-version.pom' }.signed
+    }
+
+    def 'parses the signing key once for every Sign task in the build'() {
+        setup:
+        settingsFile << "include 'other'\n"
+        file('other/build.gradle') << "apply plugin: 'com.palantir.external-publish-jar'\n"
+        writeHelloWorld(file('other'))
+
+        when:
+        def result = runDryRun('publish', '--info')
+
+        then:
+        result.wasExecuted(':jar:signMavenPublication')
+        result.wasExecuted(':other:signMavenPublication')
+
+        def parsed = result.standardOutput.readLines().findAll { it.startsWith('Parsed GPG signing key in ') }
+        def signatureUploads = file('build/external-publish/dry-run/requests.log').readLines()
+                .findAll { it.contains(' PUT ') && it.split(' ')[2].endsWith('.asc') }
+        parsed.size() == 1
+        parsed[0] ==~ /Parsed GPG signing key in \d+ms, then made ${signatureUploads.size()} signatures in \d+ms/
+        signatureUploads.any { it.contains('/group/other/version/other-version.jar.asc ') }
+        signatureUploads.any { it.contains('/group/jar/version/jar-version.jar.asc ') }
+    }
+
+    def 'splits the publications between CircleCI nodes when sharding'() {
+        setup:
+        settingsFile << "include 'other'\n"
+        file('other/build.gradle') << "apply plugin: 'com.palantir.external-publish-jar'\n"
+        writeHelloWorld(file('other'))
+
+        // language=gradle
+        buildFile << '''
+            externalPublish {
+                shardAcrossCircleNodes = true
+            }
+        '''.stripIndent(true)
+
+        when:
+        def node0 = runDryRun('publish', '-P__TESTING_CIRCLE_NODE_INDEX=0', '-P__TESTING_CIRCLE_NODE_TOTAL=2')
+        def node0Files = publishedPaths()
+        def node1 = runDryRun('publish', '-P__TESTING_CIRCLE_NODE_INDEX=1', '-P__TESTING_CIRCLE_NODE_TOTAL=2')
+        def node1Files = publishedPaths()
+
+        then:
+        node0.wasExecuted(':jar:publishMavenPublicationToSonatypeRepository')
+        node0.wasSkipped(':other:publishMavenPublicationToSonatypeRepository')
+        node0.wasSkipped(':other:signMavenPublication')
+        node1.wasSkipped(':jar:publishMavenPublicationToSonatypeRepository')
+        node1.wasExecuted(':other:publishMavenPublicationToSonatypeRepository')
+
+        node0Files.contains('group/jar/version/jar-version.jar')
+        node0Files.every { !it.startsWith('group/other/') }
+        node1Files.contains('group/other/version/other-version.jar')
+        node1Files.every { !it.startsWith('group/jar/') }
+    }
+
+    def 'checks publications against the rules of Maven Central before opening the staging repository'() {
+        setup:
+        file('jar/build.gradle') << "version = 'version-SNAPSHOT'\n"
+
+        when:
+        def result = runDryRun('publish')
+
+        then:
+        result.wasExecuted(':jar:validateMavenPublicationForMavenCentral')
+        result.standardOutput.contains('Maven Central would reject :jar:validateMavenPublicationForMavenCentral')
+        file('jar/build/external-publish/central-validation/maven.txt').text
+                .contains('the version version-SNAPSHOT is a snapshot')
+    }
+
+    def 'opens the staging repository before compiling when starting it early'() {
+        setup:
+        // language=gradle
+        buildFile << '''
+            externalPublish {
+                startStagingRepositoryEarly = true
+            }
+        '''.stripIndent(true)
+
+        when:
+        def result = runDryRun('publish')
+
+        then:
+        result.wasExecuted(':startSonatypeStagingRepositoryEarly')
+        result.wasSkipped(':initializeSonatypeStagingRepository')
+        result.wasExecuted(':closeSonatypeStagingRepository')
+
+        def order = file('build/external-publish/dry-run/requests.log').readLines()
+                .collect { it.split(' ')[1] + ' ' + it.split(' ')[2] }
+        order.count { it == 'POST /staging/profiles/simulated/start' } == 1
+        result.standardOutput.indexOf(':startSonatypeStagingRepositoryEarly') <
+                result.standardOutput.indexOf(':jar:compileJava')
+    }
+
+    def 'drops the staging repository it started early when the build fails before uploading anything'() {
+        setup:
+        // language=gradle
+        buildFile << '''
+            externalPublish {
+                startStagingRepositoryEarly = true
+            }
+        '''.stripIndent(true)
+        file('jar/src/main/java/Broken.java') << 'class Broken { does not compile }'
+
+        when:
+        def result = runDryRun({ String... args -> runTasksWithFailure(args) }, 'publish')
+
+        then:
+        result.wasExecuted(':startSonatypeStagingRepositoryEarly')
+        !result.wasExecuted(':jar:publishMavenPublicationToSonatypeRepository')
+        result.standardOutput.contains('Dropped staging repository simulated-1, as nothing was uploaded to it')
+
+        def order = file('build/external-publish/dry-run/requests.log').readLines()
+                .collect { it.split(' ')[1] + ' ' + it.split(' ')[2] }
+        order.contains('POST /staging/bulk/drop')
+        order.indexOf('POST /staging/profiles/simulated/start') < order.indexOf('POST /staging/bulk/drop')
+        order.every { !it.startsWith('PUT ') }
+    }
+
+    def 'closes and releases the staging repository in the background when configured to'() {
+        setup:
+        // language=gradle
+        buildFile << '''
+            externalPublish {
+                closeAndReleaseInBackground = true
+            }
+        '''.stripIndent(true)
+
+        when:
+        def result = runDryRun('publish')
+
+        then:
+        result.wasExecuted(':closeAndReleaseSonatypeStagingRepositoryInBackground')
+        !result.wasExecuted(':closeSonatypeStagingRepository')
+        result.standardOutput.contains('Released staging repository simulated-1')
+        result.standardOutput.contains('saving')
+
+        def order = file('build/external-publish/dry-run/requests.log').readLines()
+                .collect { it.split(' ')[1] + ' ' + it.split(' ')[2] }
+        order.indexOf('PUT /staging/deployByRepositoryId/simulated-1/group/jar/version/jar-version.jar') <
+                order.indexOf('POST /staging/bulk/close')
+        order.indexOf('POST /staging/bulk/close') < order.indexOf('POST /staging/bulk/promote')
+
+        def metrics = new JsonSlurper().parse(file('build/external-publish/publishing-metrics.json'))
+        metrics.overlap.serialMillis >= metrics.overlap.wallClockMillis
+    }
+
+    def 'streams intellij plugins to the simulated marketplace when configured to'() {
+        setup:
+        settingsFile << "include 'intellij'\n"
+        // language=gradle
+        buildFile << '''
+            externalPublish {
+                streamingMarketplaceUpload = true
+            }
+        '''.stripIndent(true)
+        // language=gradle
+        file('intellij/build.gradle') << '''
+            apply plugin: 'com.palantir.external-publish-intellij'
+
+            intellij {
+                pluginName = 'foo'
+                version = "2024.1"
+            }
+
+            patchPluginXml {
+                pluginDescription = "bar"
+                sinceBuild = '213'
+                untilBuild = ''
+            }
+        '''.stripIndent(true)
+        writeHelloWorld(file('intellij'))
+        file('intellij/src/main/resources/META-INF/plugin.xml') << '''
+            <idea-plugin>
+                <id>com.palantir.foo</id>
+                <name>foo</name>
+            </idea-plugin>
+        '''.stripIndent(true).trim()
+
+        when:
+        // instrumentCode causes a crash due to some issue with classloaders we don't fully understand
+        def result = runDryRun(':intellij:publish', '-x', ':intellij:instrumentCode')
+
+        then:
+        result.wasSkipped(':intellij:publishPlugin')
+        result.wasExecuted(':intellij:verifyPlugin')
+        result.wasExecuted(':intellij:uploadPluginToMarketplace')
+        result.standardOutput.contains(
+                "Uploaded com.palantir.foo to the 'default' channel of the JetBrains Marketplace")
+        file('build/external-publish/dry-run/requests.log').text.contains('POST /plugin/uploadPlugin 200')
+    }
+
+    def 'does not publish anything when not a dry run or tag build'() {
+        when:
+        def result = runTasksSuccessfully('publish')
+
+        then:
+        result.wasSkipped(':startSimulatedRemote')
+        result.wasSkipped(':jar:publishMavenPublicationToSonatypeRepository')
+        !file('build/external-publish/dry-run').exists()
+    }
+
+    private List<String> publishedPaths() {
+        return new JsonSlurper().parse(file('build/external-publish/dry-run/manifest.json')).files*.path
+    }
+
+    private ExecutionResult runDryRun(String... tasks) {
+        return runDryRun({ String... args -> runTasksSuccessfully(args) }, tasks)
+    }
+
+    private ExecutionResult runDryRun(Closure<ExecutionResult> runTasksMethod, String... tasks) {
+        def privateKey = getClass().getClassLoader()
+                .getResourceAsStream('testing-gpg-key.pgp')
+                .getBytes()
+
+        return runTasksMethod(([
+                '-P__TESTING=true',
+                '-PexternalPublish.dryRun=true',
+                '-P__TESTING_GPG_SIGNING_KEY_ID=4F33301C',
+                "-P__TESTING_GPG_SIGNING_KEY=${Base64.getEncoder().encodeToString(privateKey)}",
+                '-P__TESTING_GPG_SIGNING_KEY_PASSWORD=password'] + tasks.toList()) as String[])
+    }
+}
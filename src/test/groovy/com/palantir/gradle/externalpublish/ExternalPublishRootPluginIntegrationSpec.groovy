@@ -18,6 +18,7 @@ package com.palantir.gradle.externalpublish
 
 import com.google.common.collect.ImmutableList
 import com.palantir.gradle.utils.environmentvariables.EnvironmentVariables
+import groovy.json.JsonSlurper
 import org.gradle.api.Project
 
 import java.util.jar.Attributes
@@ -251,6 +252,23 @@ class ExternalPublishRootPluginIntegrationSpec extends IntegrationSpec {
         getJarVersionFromManifest(jarFile) == 'version'
     }
 
+    def 'reports publishing metrics for every publication'() {
+        setup:
+        publishJar()
+        testingMavenRepo()
+
+        when:
+        def stdout = runSuccessfullyWithSigning('publishMavenPublicationToTestRepoRepository').standardOutput
+
+        then:
+        stdout.contains('Publishing metrics')
+        def report = new JsonSlurper().parse(new File(projectDir, 'build/external-publish/publishing-metrics.json'))
+        report.tasks*.task as Set == [':jar:signMavenPublication', ':jar:publishMavenPublicationToTestRepoRepository'] as Set
+        report.tasks.every { it.succeeded && it.bytes > 0 }
+        report.publications[':jar:maven'].tasks == 2
+        report.repositories['testRepo'].tasks == 1
+    }
+
     def 'can publish jar to local maven repo on disk with version declared after plugin'() {
         setup:
         publishJar()
@@ -362,6 +380,21 @@ class ExternalPublishRootPluginIntegrationSpec extends IntegrationSpec {
         verifyPomFile(gnv, 'intellij')
     }
 
+    def 'loads an unchanged intellij plugin zip from the build cache'() {
+        setup:
+        publishIntellij()
+        // instrumentCode causes a crash due to some issue with classloaders we don't fully understand
+        runTasksSuccessfully(':intellij:buildPlugin', '--build-cache', '-x', ':intellij:instrumentCode')
+        runTasksSuccessfully('clean')
+
+        when:
+        def stdout = runTasksSuccessfully(
+                ':intellij:buildPlugin', '--build-cache', '-x', ':intellij:instrumentCode').standardOutput
+
+        then:
+        stdout.contains('Task :intellij:buildPlugin FROM-CACHE')
+    }
+
     def 'can publish custom publications to local maven repo on disk'() {
         setup:
         publishCustom()
@@ -443,6 +476,52 @@ class ExternalPublishRootPluginIntegrationSpec extends IntegrationSpec {
         new File(jarSubprojectDir, 'build/libs/jar-version-sources.jar.asc').exists()
     }
 
+    def 'loads signatures of unchanged artifacts from the build cache'() {
+        setup:
+        def jarSubprojectDir = publishJar()
+        runSuccessfullyWithSigning('signMavenPublication', '--build-cache')
+        runTasksSuccessfully('clean')
+
+        when:
+        def stdout = runSuccessfullyWithSigning('signMavenPublication', '--build-cache').standardOutput
+
+        then:
+        stdout.contains('Task :jar:signMavenPublication FROM-CACHE')
+        new File(jarSubprojectDir, 'build/libs/jar-version.jar.asc').exists()
+    }
+
+    def 'does not realize publishing or signing tasks when not publishing'() {
+        setup:
+        publishJar()
+
+        // language=gradle
+        addSubproject('dist', '''
+            apply plugin: 'com.palantir.external-publish-dist'
+
+            tasks.register('distTar', Tar) {
+                archiveFileName = 'foo'
+                destinationDirectory = file('build')
+                from 'build.gradle'
+            }
+        '''.stripIndent(true))
+
+        // language=gradle
+        buildFile << '''
+            allprojects {
+                tasks.configureEach { println "Realized ${it.path}" }
+            }
+        '''.stripIndent(true)
+
+        when:
+        def stdout = runSuccessfullyWithSigning(':jar:compileJava').standardOutput
+
+        then:
+        stdout.contains('Realized :jar:compileJava')
+        !stdout.contains('Realized :dist:distTar')
+        !stdout.contains('Realized :jar:signMavenPublication')
+        !stdout.contains('Realized :dist:signDistPublication')
+    }
+
     @Unroll
     def 'publish task for #type depends on publishing to sonatype on tag builds'() {
         setup:
@@ -512,6 +591,28 @@ class ExternalPublishRootPluginIntegrationSpec extends IntegrationSpec {
         errorMessage.contains 'dirty'
     }
 
+    def 'fails a tag build on a publication Maven Central would reject before opening the staging repository'() {
+        setup:
+        publishJar()
+
+        // language=gradle
+        file('jar/build.gradle') << '''
+            publishing.publications.maven.pom.withXml {
+                asNode().licenses.each { asNode().remove(it) }
+            }
+        '''.stripIndent(true)
+
+        when:
+        def executionResult = runFailingWithSigning('-P__TESTING_CIRCLE_TAG=tag', 'publish')
+        def errorMessage = executionResult.failure.cause.cause.message
+
+        then:
+        errorMessage.startsWith('Maven Central would reject :jar:validateMavenPublicationForMavenCentral')
+        errorMessage.contains('the POM has no <license> in <licenses>')
+        !executionResult.wasExecuted(':initializeSonatypeStagingRepository')
+        !executionResult.wasExecuted(':jar:publishMavenPublicationToSonatypeRepository')
+    }
+
     def 'does not init, close, release or publish to staging sonatype repo if not on a tag build'() {
         // See https://issues.sonatype.org/browse/OSSRH-65523?focusedCommentId=1046249#comment-1046249 for why we can't
         // exercise the publishing codepath on develop - basically it overwhelms Sonatype and harms other users (note
@@ -688,6 +789,84 @@ class ExternalPublishRootPluginIntegrationSpec extends IntegrationSpec {
         stdout.contains(':publishMavenPublicationToMavenLocal SKIPPED')
     }
 
+    def 'publishes into the build directory on build, and is up-to-date the second time, when configured to'() {
+        setup:
+        def jarSubprojectDir = publishJar()
+        // language=gradle
+        buildFile << """
+            externalPublish {
+                buildLocalRepository = true
+            }
+        """.stripIndent(true)
+
+        when:
+        def stdout = runTasksSuccessfully(':jar:build').standardOutput
+
+        then:
+        !stdout.contains(':jar:publishMavenPublicationToMavenLocal')
+        new File(jarSubprojectDir,
+                'build/external-publish/build-local-repository/group/jar/version/jar-version.jar').exists()
+
+        when:
+        stdout = runTasksSuccessfully(':jar:build').standardOutput
+
+        then:
+        stdout.contains(':jar:publishMavenPublicationToBuildLocalRepository UP-TO-DATE')
+    }
+
+    def 'only adds the repositories and tasks of opt-in features that are turned on'() {
+        setup:
+        publishJar()
+        // language=gradle
+        buildFile << """
+            externalPublish {
+                pooledSonatypeUploads = true
+            }
+        """.stripIndent(true)
+
+        when:
+        def stdout = runTasksSuccessfully(':jar:tasks', '--all').standardOutput
+
+        then:
+        stdout.contains('publishMavenPublicationToSonatypeUploadRepository')
+        stdout.contains('uploadToSonatype')
+        !stdout.contains('publishMavenPublicationToCentralBundleRepository')
+        !stdout.contains('publishMavenPublicationToBuildLocalRepository')
+    }
+
+    def 'puts placeholder javadoc in the javadoc jar except on tag builds, when configured to'() {
+        setup:
+        def jarSubprojectDir = publishJar()
+        // language=gradle
+        buildFile << """
+            externalPublish {
+                placeholderJavadocUnlessReleasing = true
+            }
+        """.stripIndent(true)
+        def javadocJar = new File(jarSubprojectDir, 'build/libs/jar-version-javadoc.jar')
+
+        when:
+        def stdout = runTasksSuccessfully(':jar:javadocJar').standardOutput
+
+        then:
+        stdout.contains('Generated placeholder javadoc for 1 projects')
+        new JarFile(javadocJar).withCloseable { jar ->
+            jar.getEntry('index.html') != null && jar.getEntry('example/HelloWorld.html') == null
+        }
+
+        when:
+        runTasksSuccessfully(':jar:javadocJar', '-P__TESTING_CIRCLE_TAG=tag')
+
+        then:
+        new JarFile(javadocJar).withCloseable { jar -> jar.getEntry('example/HelloWorld.html') != null }
+
+        when:
+        stdout = runTasksSuccessfully(':jar:javadocJar').standardOutput
+
+        then:
+        stdout.contains('going by the last full javadoc of 1 of them')
+    }
+
     def 'runs publish depends on publishPlugin for intellij'() {
         setup:
         publishIntellij()
@@ -0,0 +1,158 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish
+
+import groovy.json.JsonSlurper
+import java.security.MessageDigest
+import nebula.test.IntegrationTestKitSpec
+import org.gradle.testkit.runner.BuildResult
+import org.gradle.testkit.runner.TaskOutcome
+import spock.lang.Requires
+import spock.lang.Unroll
+
+/**
+ * Publishes an application dist many times bigger than the heap of the Gradle daemon, in a dry run, to check that
+ * nothing buffers a whole artifact in memory. Writes several copies of the dist to disk, so only runs with
+ * {@code ./gradlew test -PlargeArtifacts}, or {@code -PlargeArtifacts=4} for a 4 GB dist.
+ */
+@Requires({ System.getProperty('externalPublish.largeArtifactGigabytes') })
+class LargeArtifactPublishingSpec extends IntegrationTestKitSpec {
+    private static final long HEAP_MB = 384
+    private static final long MB = 1024 * 1024
+    // Leaves room for the collector to work without the heap being anywhere near full
+    private static final long MAX_PEAK_HEAP_MB = HEAP_MB * 3 / 4
+    // How much higher the heap may get publishing the large dist than publishing a tiny one
+    private static final long MAX_PEAK_HEAP_GROWTH_MB = 64
+
+    def setup() {
+        // language=properties
+        new File(projectDir, 'gradle.properties') << """
+            org.gradle.jvmargs=-Xmx${HEAP_MB}m
+        """.stripIndent(true)
+
+        // language=gradle
+        settingsFile << '''
+            rootProject.name = 'root'
+        '''.stripIndent(true)
+
+        // language=gradle
+        buildFile << '''
+            plugins {
+                id 'com.palantir.external-publish'
+            }
+
+            allprojects {
+                group = 'group'
+                version = 'version'
+            }
+
+            externalPublish {
+                parallelDistCompression = true
+            }
+        '''.stripIndent(true)
+
+        def distDir = addSubproject('dist', '''
+            plugins {
+                id 'com.palantir.external-publish-application-dist'
+            }
+        '''.stripIndent(true))
+        writeHelloWorld(distDir)
+    }
+
+    @Unroll
+    def 'publishes a multi-gigabyte dist within a small heap #description'() {
+        setup:
+        if (singlePass) {
+            // language=gradle
+            buildFile << '''
+                externalPublish {
+                    pooledSonatypeUploads = true
+                    singlePassUploads = true
+                }
+            '''.stripIndent(true)
+        }
+
+        // Publishing a tiny dist first, in the same daemon where possible, to compare the heap against
+        writeIncompressible(file('dist/src/dist/large.bin'), MB)
+        runDryRun('publish')
+        def smallHeap = heap()
+
+        long artifactBytes = (System.getProperty('externalPublish.largeArtifactGigabytes') as long) * 1_000_000_000L
+        writeIncompressible(file('dist/src/dist/large.bin'), artifactBytes)
+
+        when:
+        BuildResult result = runDryRun('publish')
+
+        then:
+        result.task(publishTask).outcome == TaskOutcome.SUCCESS
+
+        File dist = file('dist/build/distributions/dist-version.tgz')
+        dist.length() > artifactBytes
+
+        def manifest = new JsonSlurper().parse(file('build/external-publish/dry-run/manifest.json'))
+        def published = manifest.files.find { it.path == 'group/dist/version/dist-version.tgz' }
+        published.signed
+        published.sha256 == sha256(dist)
+
+        def heap = heap()
+        heap.maxBytes <= HEAP_MB * MB
+        heap.peakBytes < MAX_PEAK_HEAP_MB * MB
+        heap.peakBytes < smallHeap.peakBytes + MAX_PEAK_HEAP_GROWTH_MB * MB
+
+        where:
+        singlePass << [false, true]
+        description = singlePass ? 'in a single pass' : 'through Gradle publishing'
+        publishTask = singlePass ? ':dist:uploadToSonatype' : ':dist:publishDistPublicationToSonatypeRepository'
+    }
+
+    private BuildResult runDryRun(String... tasks) {
+        def privateKey = getClass().getClassLoader()
+                .getResourceAsStream('testing-gpg-key.pgp')
+                .getBytes()
+
+        return runTasks(([
+                '-P__TESTING=true',
+                '-PexternalPublish.dryRun=true',
+                '-P__TESTING_GPG_SIGNING_KEY_ID=4F33301C',
+                "-P__TESTING_GPG_SIGNING_KEY=${Base64.getEncoder().encodeToString(privateKey)}".toString(),
+                '-P__TESTING_GPG_SIGNING_KEY_PASSWORD=password'] + tasks.toList()) as String[])
+    }
+
+    private Map heap() {
+        return new JsonSlurper().parse(file('build/external-publish/publishing-metrics.json')).heap as Map
+    }
+
+    /** Random, so compressing the dist does not shrink it below the size of the heap. */
+    private static void writeIncompressible(File destination, long bytes) {
+        destination.parentFile.mkdirs()
+        def random = new Random(0)
+        byte[] chunk = new byte[1024 * 1024]
+
+        destination.withOutputStream { out ->
+            for (long written = 0; written < bytes; written += chunk.length) {
+                random.nextBytes(chunk)
+                out.write(chunk, 0, (int) Math.min(chunk.length, bytes - written))
+            }
+        }
+    }
+
+    private static String sha256(File file) {
+        def digest = MessageDigest.getInstance('SHA-256')
+        file.eachByte(1024 * 1024) { byte[] buffer, int read -> digest.update(buffer, 0, read) }
+        return digest.digest().encodeHex().toString()
+    }
+}
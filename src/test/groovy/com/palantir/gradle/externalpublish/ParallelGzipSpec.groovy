@@ -0,0 +1,115 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.zip.GZIPInputStream
+import java.util.zip.GZIPOutputStream
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream
+import spock.lang.Requires
+import spock.lang.Specification
+import spock.lang.TempDir
+import spock.lang.Unroll
+
+class ParallelGzipSpec extends Specification {
+    @TempDir
+    Path tempDir
+
+    @Unroll
+    def 'compresses #size bytes to standard gzip'() {
+        setup:
+        def input = writeInput(size)
+        def output = tempDir.resolve('output.gz')
+
+        when:
+        ParallelGzip.compress(input, output, 4)
+
+        then:
+        new GZIPInputStream(Files.newInputStream(output)).bytes == Files.readAllBytes(input)
+        new GzipCompressorInputStream(Files.newInputStream(output)).bytes == Files.readAllBytes(input)
+
+        where:
+        size << [0, 10, 128 * 1024, 5 * 128 * 1024 + 77]
+    }
+
+    def 'output is identical no matter how many threads are used'() {
+        setup:
+        def input = writeInput(3_000_000)
+        def singleThreaded = tempDir.resolve('single.gz')
+        def multiThreaded = tempDir.resolve('multi.gz')
+
+        when:
+        ParallelGzip.compress(input, singleThreaded, 1)
+        ParallelGzip.compress(input, multiThreaded, 8)
+
+        then:
+        Files.readAllBytes(singleThreaded) == Files.readAllBytes(multiThreaded)
+    }
+
+    @Requires({ System.getProperty('externalPublish.benchmark') })
+    def 'benchmark against single threaded gzip'() {
+        setup:
+        def input = writeInput(512 * 1024 * 1024)
+        def output = tempDir.resolve('output.gz')
+        int threads = Runtime.getRuntime().availableProcessors()
+
+        when:
+        long singleThreadedNanos = time {
+            new GZIPOutputStream(Files.newOutputStream(tempDir.resolve('single.gz'))).withCloseable { out ->
+                Files.copy(input, out)
+            }
+        }
+        long parallelNanos = time { ParallelGzip.compress(input, output, threads) }
+
+        then:
+        println "GZIPOutputStream: ${throughput(input, singleThreadedNanos)} MB/s, " +
+                "ParallelGzip on ${threads} threads: ${throughput(input, parallelNanos)} MB/s, " +
+                "size ${Files.size(output)} vs ${Files.size(tempDir.resolve('single.gz'))} bytes"
+        parallelNanos > 0
+    }
+
+    private Path writeInput(int size) {
+        // Roughly as compressible as a typical distribution of jars and scripts
+        def random = new Random(0)
+        def input = tempDir.resolve('input')
+        Files.newOutputStream(input).withCloseable { out ->
+            byte[] line = new byte[100]
+            int written = 0
+            while (written < size) {
+                random.nextBytes(line)
+                for (int i = 0; i < line.length; i++) {
+                    line[i] = (byte) ('a' + Math.floorMod(line[i], 8))
+                }
+                int length = Math.min(line.length, size - written)
+                out.write(line, 0, length)
+                written += length
+            }
+        }
+        return input
+    }
+
+    private static long time(Closure<?> action) {
+        long start = System.nanoTime()
+        action()
+        return System.nanoTime() - start
+    }
+
+    private static long throughput(Path input, long nanos) {
+        return (long) (Files.size(input) / 1_000_000d / (nanos / 1_000_000_000d))
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish
+
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+import groovy.json.JsonOutput
+import java.nio.charset.StandardCharsets
+import org.gradle.testfixtures.ProjectBuilder
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class PreviousAttemptsSpec extends Specification {
+    private static final String DESCRIPTION = 'group:root:1.0.0'
+    private static final String JAR = 'group/jar/1.0.0/jar-1.0.0.jar'
+    private static final String POM = 'group/jar/1.0.0/jar-1.0.0.pom'
+
+    @TempDir
+    File directory
+
+    HttpServer nexus
+    // The staging repositories Sonatype has, and the contents of the files in each of them
+    List<Map<String, Object>> stagingRepositories = []
+    Map<String, Map<String, String>> contents = [:]
+
+    def setup() {
+        nexus = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0)
+        nexus.createContext('/', this.&respond)
+        nexus.start()
+    }
+
+    def cleanup() {
+        nexus.stop(0)
+    }
+
+    def 'carries on in the open staging repository a previous attempt left, found by its description'() {
+        setup:
+        stagingRepositories << repository('group-1000', 'released', 'group:root:0.9.0')
+        stagingRepositories << repository('group-1001', 'closed', DESCRIPTION)
+        stagingRepositories << repository('group-1002', 'open', DESCRIPTION)
+
+        expect:
+        previousAttempts(false).reusableStagingRepository() == Optional.of('group-1002')
+    }
+
+    def 'opens a new staging repository when no previous attempt left one open'() {
+        setup:
+        stagingRepositories << repository('group-1001', 'closed', DESCRIPTION)
+        stagingRepositories << repository('group-1002', 'open', 'group:root:0.9.0')
+
+        expect:
+        previousAttempts(false).reusableStagingRepository() == Optional.empty()
+    }
+
+    def 'never carries on when sharing a staging repository between nodes'() {
+        setup:
+        stagingRepositories << repository('group-1002', 'open', DESCRIPTION)
+
+        expect:
+        previousAttempts(true).reusableStagingRepository() == Optional.empty()
+    }
+
+    def 'only skips publications whose every file and checksum a previous attempt uploaded'() {
+        setup:
+        stagingRepositories << repository('group-1002', 'open', DESCRIPTION)
+        contents['group-1002'] = [
+                (JAR): 'jar',
+                (JAR + '.sha1'): sha1('jar'),
+                (JAR + '.asc'): 'signature',
+                (JAR + '.asc.sha1'): sha1('signature'),
+                (POM): 'pom']
+        def attempts = previousAttempts(false)
+
+        expect:
+        attempts.isUploaded([(JAR): file('jar')], true)
+        !attempts.isUploaded([(JAR): file('jar'), (POM): file('pom')], true)
+        !attempts.isUploaded([:], true)
+    }
+
+    def 'uploads an artifact again when it was built differently since a previous attempt uploaded it'() {
+        setup:
+        stagingRepositories << repository('group-1002', 'open', DESCRIPTION)
+        contents['group-1002'] = [(JAR): 'jar', (JAR + '.sha1'): "${sha1('jar')}  jar-1.0.0.jar".toString()]
+        def attempts = previousAttempts(false)
+
+        expect:
+        attempts.isUploaded([(JAR): file('jar')], false)
+        !attempts.isUploaded([(JAR): file('rebuilt jar')], false)
+    }
+
+    def 'does not skip anything when there is no staging repository to carry on in'() {
+        setup:
+        stagingRepositories << repository('group-1001', 'closed', DESCRIPTION)
+        contents['group-1001'] = [(JAR): 'jar', (JAR + '.sha1'): sha1('jar')]
+
+        expect:
+        !previousAttempts(false).isUploaded([(JAR): file('jar')], false)
+    }
+
+    private PreviousAttempts previousAttempts(boolean sharing) {
+        def project = ProjectBuilder.builder().build()
+        return project.gradle.sharedServices.registerIfAbsent('previousAttempts', PreviousAttempts) { spec ->
+            spec.parameters.stagingRepositoryDescription.set(DESCRIPTION)
+            spec.parameters.nexusUrl.set(SimulatedRemote.url(nexus.address.port))
+            spec.parameters.username.set('username')
+            spec.parameters.password.set('password')
+            spec.parameters.carryOnFromPreviousAttempts.set(!sharing)
+        }.get()
+    }
+
+    private static Map<String, Object> repository(String id, String type, String description) {
+        return [repositoryId: id, type: type, transitioning: false, description: description]
+    }
+
+    private void respond(HttpExchange exchange) {
+        String path = exchange.requestURI.path
+        if (path == '/staging/profile_repositories') {
+            byte[] body = JsonOutput.toJson([data: stagingRepositories]).getBytes(StandardCharsets.UTF_8)
+            exchange.sendResponseHeaders(200, body.length)
+            exchange.responseBody.withCloseable { it.write(body) }
+            return
+        }
+
+        def content = path =~ '/repositories/([^/]+)/content/(.+)'
+        String found = content.matches() ? contents.getOrDefault(content.group(1), [:])[content.group(2)] : null
+        if (found == null) {
+            exchange.sendResponseHeaders(404, -1)
+        } else if (exchange.requestMethod == 'HEAD') {
+            exchange.sendResponseHeaders(200, -1)
+        } else {
+            byte[] body = found.getBytes(StandardCharsets.UTF_8)
+            exchange.sendResponseHeaders(200, body.length)
+            exchange.responseBody.withCloseable { it.write(body) }
+        }
+        exchange.close()
+    }
+
+    /** A local artifact, built with {@code content}. */
+    private File file(String content) {
+        def file = File.createTempFile('artifact', '.jar', directory)
+        file.text = content
+        return file
+    }
+
+    private static String sha1(String content) {
+        return content.getBytes(StandardCharsets.UTF_8).digest('SHA-1')
+    }
+}
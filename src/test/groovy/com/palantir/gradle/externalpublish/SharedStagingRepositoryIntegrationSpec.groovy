@@ -0,0 +1,190 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.palantir.gradle.externalpublish
+
+import groovy.json.JsonSlurper
+import java.nio.file.Files
+import java.nio.file.Path
+import java.time.Duration
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.TimeUnit
+import nebula.test.IntegrationTestKitSpec
+import org.gradle.testfixtures.ProjectBuilder
+import org.gradle.testkit.runner.BuildResult
+import org.gradle.testkit.runner.GradleRunner
+import org.gradle.testkit.runner.TaskOutcome
+
+/**
+ * Runs two CircleCI nodes of a tag build at once against one stand-in for Sonatype, as dry runs never share a staging
+ * repository between nodes.
+ */
+class SharedStagingRepositoryIntegrationSpec extends IntegrationTestKitSpec {
+    private static final String DESCRIPTION = 'group:root:1.0.0 (CircleCI build 1234)'
+
+    SimulatedRemote remote
+    File remoteDirectory
+    boolean remoteClosed = false
+
+    def setup() {
+        remoteDirectory = new File(projectDir.parentFile, projectDir.name + '-remote')
+        def project = ProjectBuilder.builder().build()
+        remote = project.gradle.sharedServices.registerIfAbsent('simulatedRemote', SimulatedRemote) { spec ->
+            spec.parameters.outputDirectory.set(remoteDirectory)
+            spec.parameters.latency.set(Duration.ZERO)
+            spec.parameters.bandwidth.set(0L)
+            spec.parameters.concurrencyLimit.set(0)
+        }.get()
+
+        // language=gradle
+        settingsFile << '''
+            rootProject.name = 'root'
+            include 'jar', 'other'
+        '''.stripIndent(true)
+
+        // language=gradle
+        buildFile << '''
+            plugins {
+                id 'com.palantir.external-publish'
+            }
+
+            allprojects {
+                group = 'group'
+                version = '1.0.0'
+
+                // The publications are only placeholders, which Maven Central would reject
+                tasks.matching { it.name.endsWith('ForMavenCentral') }.configureEach { enabled = false }
+            }
+
+            externalPublish {
+                shardAcrossCircleNodes = true
+            }
+
+            // The stand-in only has the one staging profile
+            nexusPublishing.repositories.sonatype.stagingProfileId = 'simulated'
+        '''.stripIndent(true)
+
+        ['jar', 'other'].each { name ->
+            writeHelloWorld(addSubproject(name, '''
+                apply plugin: 'com.palantir.external-publish-jar'
+            '''.stripIndent(true)))
+        }
+    }
+
+    def cleanup() {
+        closeRemote()
+    }
+
+    def 'nodes meet up in the staging repository the lead node opens, which only the lead node closes and releases'() {
+        setup:
+        File node1Directory = new File(projectDir.parentFile, projectDir.name + '-node1')
+        copyDirectory(projectDir, node1Directory)
+
+        when:
+        // Node 1 starts first, so it has to wait for the lead node to open the staging repository
+        CompletableFuture<BuildResult> node1 = CompletableFuture.supplyAsync { runNode(node1Directory, 1) }
+        CompletableFuture<BuildResult> node0 = CompletableFuture.supplyAsync { runNode(projectDir, 0) }
+        BuildResult lead = node0.get(10, TimeUnit.MINUTES)
+        BuildResult other = node1.get(10, TimeUnit.MINUTES)
+        closeRemote()
+
+        then:
+        other.task(':awaitSharedStagingRepository').outcome == TaskOutcome.SUCCESS
+        // Found by the description the lead node gave it, which names the CircleCI build both nodes belong to
+        other.output.contains("Waiting for the lead node to open staging repository '${DESCRIPTION}'")
+        other.output.contains('Uploading to staging repository simulated-1 opened by the lead node')
+        other.task(':initializeSonatypeStagingRepository').outcome == TaskOutcome.SKIPPED
+        other.task(':other:publishMavenPublicationToSonatypeRepository').outcome == TaskOutcome.SUCCESS
+        other.task(':jar:publishMavenPublicationToSonatypeRepository').outcome == TaskOutcome.SKIPPED
+        other.task(':closeSonatypeStagingRepository').outcome == TaskOutcome.SKIPPED
+        other.task(':releaseSonatypeStagingRepository').outcome == TaskOutcome.SKIPPED
+
+        lead.task(':awaitSharedStagingRepository').outcome == TaskOutcome.SKIPPED
+        lead.task(':initializeSonatypeStagingRepository').outcome == TaskOutcome.SUCCESS
+        lead.task(':jar:publishMavenPublicationToSonatypeRepository').outcome == TaskOutcome.SUCCESS
+        lead.task(':awaitOtherNodes').outcome == TaskOutcome.SUCCESS
+        lead.output.contains('All 1 publications from other nodes are in staging repository simulated-1')
+        lead.task(':closeSonatypeStagingRepository').outcome == TaskOutcome.SUCCESS
+        lead.task(':releaseSonatypeStagingRepository').outcome == TaskOutcome.SUCCESS
+
+        def order = new File(remoteDirectory, 'requests.log').readLines().collect { it.split(' ')[1..2].join(' ') }
+        order.count { it == 'POST /staging/profiles/simulated/start' } == 1
+        order.count { it == 'POST /staging/bulk/close' } == 1
+        order.count { it == 'POST /staging/bulk/promote' } == 1
+        // The lead node only closes the staging repository once the other node has uploaded all of its publication
+        order.containsAll([
+                'PUT /staging/deployByRepositoryId/simulated-1/group/other/maven-metadata.xml',
+                'PUT /staging/deployByRepositoryId/simulated-1/group/jar/maven-metadata.xml'])
+        order.indexOf('PUT /staging/deployByRepositoryId/simulated-1/group/other/maven-metadata.xml') <
+                order.indexOf('POST /staging/bulk/close')
+        order.indexOf('PUT /staging/deployByRepositoryId/simulated-1/group/jar/maven-metadata.xml') <
+                order.indexOf('POST /staging/bulk/close')
+
+        def manifest = new JsonSlurper().parse(new File(remoteDirectory, 'manifest.json'))
+        manifest.files*.path.containsAll(['group/jar/1.0.0/jar-1.0.0.jar', 'group/other/1.0.0/other-1.0.0.jar'])
+        manifest.files.findAll { it.path.endsWith('.jar') }.every { it.signed }
+    }
+
+    private BuildResult runNode(File directory, int nodeIndex) {
+        def privateKey = getClass().getClassLoader()
+                .getResourceAsStream('testing-gpg-key.pgp')
+                .getBytes()
+
+        return GradleRunner.create()
+                .withProjectDir(directory)
+                .withPluginClasspath()
+                .forwardOutput()
+                .withArguments(
+                        '-P__TESTING=true',
+                        '-P__TESTING_CIRCLE_TAG=1.0.0',
+                        '-P__TESTING_CIRCLE_BUILD_NUM=1234',
+                        "-P__TESTING_CIRCLE_NODE_INDEX=${nodeIndex}".toString(),
+                        '-P__TESTING_CIRCLE_NODE_TOTAL=2',
+                        "-P__TESTING_SONATYPE_NEXUS_URL=${remote.url()}".toString(),
+                        "-P__TESTING_SONATYPE_SNAPSHOT_REPO_URL=${remote.url()}content/repositories/snapshots/"
+                                .toString(),
+                        '-P__TESTING_SONATYPE_USERNAME=username',
+                        '-P__TESTING_SONATYPE_PASSWORD=password',
+                        '-P__TESTING_GPG_SIGNING_KEY_ID=4F33301C',
+                        "-P__TESTING_GPG_SIGNING_KEY=${Base64.getEncoder().encodeToString(privateKey)}".toString(),
+                        '-P__TESTING_GPG_SIGNING_KEY_PASSWORD=password',
+                        'publish',
+                        '--stacktrace')
+                .build()
+    }
+
+    private void closeRemote() {
+        if (!remoteClosed) {
+            remoteClosed = true
+            remote.close()
+        }
+    }
+
+    private static void copyDirectory(File from, File to) {
+        Path source = from.toPath()
+        Files.walk(source).withCloseable { paths ->
+            paths.forEach { Path path ->
+                Path destination = to.toPath().resolve(source.relativize(path).toString())
+                if (Files.isDirectory(path)) {
+                    Files.createDirectories(destination)
+                } else {
+                    Files.copy(path, destination)
+                }
+            }
+        }
+    }
+}
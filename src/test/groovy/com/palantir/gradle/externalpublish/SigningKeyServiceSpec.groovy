@@ -0,0 +1,85 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish
+
+import com.palantir.gradle.externalpublish.SigningKeyService.SharedSignatory
+import org.bouncycastle.bcpg.ArmoredInputStream
+import org.bouncycastle.openpgp.PGPSecretKeyRingCollection
+import org.bouncycastle.openpgp.PGPSignature
+import org.bouncycastle.openpgp.PGPSignatureList
+import org.bouncycastle.openpgp.PGPUtil
+import org.bouncycastle.openpgp.bc.BcPGPObjectFactory
+import org.bouncycastle.openpgp.operator.bc.BcKeyFingerprintCalculator
+import org.gradle.api.provider.Provider
+import org.gradle.plugins.signing.signatory.pgp.PgpSignatory
+import org.gradle.plugins.signing.signatory.pgp.PgpSignatoryFactory
+import org.gradle.testfixtures.ProjectBuilder
+import spock.lang.Specification
+
+class SigningKeyServiceSpec extends Specification {
+    private static final String KEY_ID = '4F33301C'
+    private static final byte[] CONTENT = (0..<200_000).collect { (byte) (it * 31) } as byte[]
+
+    Provider<SigningKeyService> service
+    PgpSignatory reference
+
+    def setup() {
+        byte[] armoredKey = getClass().getClassLoader().getResourceAsStream('testing-gpg-key.pgp').bytes
+
+        def project = ProjectBuilder.builder().build()
+        service = project.gradle.sharedServices.registerIfAbsent('signingKey', SigningKeyService) { spec ->
+            spec.parameters.keyId.set(KEY_ID)
+            spec.parameters.base64Key.set(Base64.encoder.encodeToString(armoredKey))
+            spec.parameters.password.set('password')
+        }
+
+        def keyRings = new PGPSecretKeyRingCollection(
+                PGPUtil.getDecoderStream(new ByteArrayInputStream(armoredKey)), new BcKeyFingerprintCalculator())
+        def secretKey = keyRings.keyRings.toList().collectMany { it.secretKeys.toList() }
+                .find { String.format('%016X', it.keyID).endsWith(KEY_ID) }
+        reference = new PgpSignatoryFactory().createSignatory('reference', secretKey, 'password')
+    }
+
+    def 'signs exactly like PgpSignatory, whether signing a stream or a chunk at a time'() {
+        when:
+        // Signatures record the second they were made in, so retry until all three were made in the same one
+        List<PGPSignature> signatures = (1..5).findResult {
+            def made = [
+                    parse(reference.sign(new ByteArrayInputStream(CONTENT))),
+                    parse(new SharedSignatory(service, KEY_ID).sign(new ByteArrayInputStream(CONTENT))),
+                    parse(streamingSignature())]
+            made*.creationTime.unique().size() == 1 ? made : null
+        }
+
+        then:
+        signatures[1].encoded == signatures[0].encoded
+        signatures[2].encoded == signatures[0].encoded
+    }
+
+    private byte[] streamingSignature() {
+        def signature = service.get().startSignature()
+        // In uneven chunks, like reads of a file being uploaded
+        for (int offset = 0; offset < CONTENT.length; offset += 7_919) {
+            signature.update(CONTENT, offset, Math.min(7_919, CONTENT.length - offset))
+        }
+        return new ArmoredInputStream(new ByteArrayInputStream(signature.armored())).bytes
+    }
+
+    private static PGPSignature parse(byte[] signature) {
+        return ((PGPSignatureList) new BcPGPObjectFactory(signature).nextObject()).get(0)
+    }
+}
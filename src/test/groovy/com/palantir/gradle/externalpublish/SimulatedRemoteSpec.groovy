@@ -0,0 +1,99 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.palantir.gradle.externalpublish
+
+import java.nio.charset.StandardCharsets
+import java.time.Duration
+import org.gradle.api.logging.Logging
+import org.gradle.testfixtures.ProjectBuilder
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class SimulatedRemoteSpec extends Specification {
+    @TempDir
+    File outputDirectory
+
+    SimulatedRemote remote
+
+    def setup() {
+        def project = ProjectBuilder.builder().build()
+        remote = project.gradle.sharedServices.registerIfAbsent('simulatedRemote', SimulatedRemote) { spec ->
+            spec.parameters.outputDirectory.set(new File(outputDirectory, 'dry-run'))
+            spec.parameters.latency.set(Duration.ZERO)
+            spec.parameters.bandwidth.set(0L)
+            spec.parameters.concurrencyLimit.set(0)
+        }.get()
+    }
+
+    def cleanup() {
+        remote.close()
+    }
+
+    def 'keeps uploads inside its repository'() {
+        expect:
+        request('PUT', 'content/repositories/snapshots/group/jar/1.0.0/jar-1.0.0.jar', 'jar') == 201
+        request('HEAD', 'repositories/simulated-1/content/group/jar/1.0.0/jar-1.0.0.jar') == 200
+        request('GET', 'content/repositories/snapshots/group/jar/1.0.0/jar-1.0.0.jar') == 200
+        new File(outputDirectory, 'dry-run/repository/group/jar/1.0.0/jar-1.0.0.jar').text == 'jar'
+    }
+
+    def 'rejects paths that lead out of its repository'() {
+        setup:
+        new File(outputDirectory, 'secret.txt').text = 'secret'
+
+        expect:
+        request('PUT', 'content/repositories/snapshots/..%2F..%2Fescaped.txt', 'escaped') == 400
+        !new File(outputDirectory, 'escaped.txt').exists()
+        request('GET', 'content/repositories/snapshots/..%2F..%2Fsecret.txt') == 400
+        request('HEAD', 'repositories/simulated-1/content/..%2F..%2Fsecret.txt') == 400
+        request('PUT', 'staging/deployByRepositoryId/simulated-1/..%2F..%2F..%2Fescaped.txt', 'escaped') == 400
+        !new File(outputDirectory, 'escaped.txt').exists()
+    }
+
+    def 'drops a staging repository once it has been released, like Sonatype does'() {
+        setup:
+        def client = new NexusStagingClient(remote.url(), 'username', 'password')
+        def logger = Logging.getLogger(SimulatedRemoteSpec)
+        String repositoryId = client.start('simulated', 'group:root:1.0.0')
+
+        when:
+        StagingRepositoryWatcher.transition(client, repositoryId, 'group:root:1.0.0', 'closed', logger)
+        StagingRepositoryWatcher.transition(client, repositoryId, 'group:root:1.0.0', 'released', logger)
+
+        then:
+        repositoryId == 'simulated-1'
+        client.repository(repositoryId).isEmpty()
+        request('GET', "staging/repository/${repositoryId}") == 404
+        // Never hands out the id of the dropped repository again
+        client.start('simulated', 'group:root:1.0.1') == 'simulated-2'
+    }
+
+    private int request(String method, String path, String body = null) {
+        def connection = (HttpURLConnection) remote.url().resolve(path).toURL().openConnection()
+        connection.requestMethod = method
+        if (body != null) {
+            connection.doOutput = true
+            connection.outputStream.withCloseable { it.write(body.getBytes(StandardCharsets.UTF_8)) }
+        }
+        try {
+            return connection.responseCode
+        } finally {
+            connection.disconnect()
+        }
+    }
+}
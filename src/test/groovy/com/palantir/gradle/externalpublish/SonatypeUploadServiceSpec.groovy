@@ -0,0 +1,105 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.palantir.gradle.externalpublish
+
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+import java.nio.file.Path
+import java.time.Duration
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import org.gradle.testfixtures.ProjectBuilder
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class SonatypeUploadServiceSpec extends Specification {
+    private static final String REPOSITORY_ID = 'group-1001'
+
+    @TempDir
+    File directory
+
+    HttpServer nexus
+    SonatypeUploadService service
+    List<String> uploaded = new CopyOnWriteArrayList<>()
+    CountDownLatch firstUploadArrived = new CountDownLatch(1)
+    CountDownLatch finishFirstUpload = new CountDownLatch(1)
+
+    def setup() {
+        nexus = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0)
+        nexus.createContext('/', this.&respond)
+        nexus.start()
+
+        def project = ProjectBuilder.builder().build()
+        service = project.gradle.sharedServices.registerIfAbsent('sonatypeUpload', SonatypeUploadService) { spec ->
+            spec.parameters.nexusUrl.set(SimulatedRemote.url(nexus.address.port))
+            spec.parameters.username.set('username')
+            spec.parameters.password.set('password')
+            spec.parameters.maxConcurrentUploads.set(1)
+            spec.parameters.maxUploadsPerSecond.set(0d)
+            spec.parameters.retries.set(0)
+            spec.parameters.initialBackoff.set(Duration.ofMillis(10))
+            spec.parameters.maxBackoff.set(Duration.ofMillis(10))
+            spec.parameters.largestUploadsFirst.set(true)
+        }.get()
+    }
+
+    def cleanup() {
+        finishFirstUpload.countDown()
+        service.close()
+        nexus.stop(0)
+    }
+
+    def 'starts the largest waiting upload next, whichever task queued it'() {
+        setup:
+        def jar = file('jar.jar', 10)
+        def pom = file('jar.pom', 1)
+        def dist = file('dist.tgz', 5)
+
+        when:
+        def jarTask = Thread.start { service.uploadAll(REPOSITORY_ID, ['jar/jar.jar': jar, 'jar/jar.pom': pom]) }
+        assert firstUploadArrived.await(10, TimeUnit.SECONDS)
+        def distTask = Thread.start { service.uploadAll(REPOSITORY_ID, ['dist/dist.tgz': dist]) }
+        // Gives the dist task time to queue its upload behind the jar task's
+        Thread.sleep(500)
+        finishFirstUpload.countDown()
+        jarTask.join()
+        distTask.join()
+
+        then:
+        uploaded == ['jar/jar.jar', 'dist/dist.tgz', 'jar/jar.pom']
+    }
+
+    private void respond(HttpExchange exchange) {
+        exchange.requestBody.bytes
+        if (uploaded.isEmpty()) {
+            firstUploadArrived.countDown()
+            finishFirstUpload.await(10, TimeUnit.SECONDS)
+        }
+        uploaded << exchange.requestURI.path.substring("/staging/deployByRepositoryId/${REPOSITORY_ID}/".length())
+
+        exchange.sendResponseHeaders(201, -1)
+        exchange.close()
+    }
+
+    private Path file(String name, int bytes) {
+        def file = new File(directory, name)
+        file.bytes = new byte[bytes]
+        return file.toPath()
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.externalpublish
+
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+import groovy.json.JsonOutput
+import java.nio.charset.StandardCharsets
+import org.gradle.api.GradleException
+import org.gradle.api.logging.Logger
+import org.gradle.api.logging.Logging
+import spock.lang.Specification
+
+class StagingRepositoryWatcherSpec extends Specification {
+    private static final String REPOSITORY_ID = 'group-1001'
+
+    HttpServer nexus
+    NexusStagingClient client
+    // The events the repository already had when the transition was asked for
+    List<String> eventsBefore = []
+    // What the stand-in Nexus answers on each poll, repeating the last one once they run out
+    List<Poll> polls = []
+    int pollCount = 0
+    List<String> requested = []
+
+    def setup() {
+        nexus = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0)
+        nexus.createContext('/staging/repository/', this.&respond)
+        nexus.createContext('/staging/bulk/', { HttpExchange exchange ->
+            requested << exchange.requestURI.path
+            exchange.sendResponseHeaders(201, -1)
+            exchange.close()
+        })
+        nexus.start()
+        client = new NexusStagingClient(SimulatedRemote.url(nexus.address.port), 'username', 'password')
+    }
+
+    def cleanup() {
+        nexus.stop(0)
+    }
+
+    def 'follows the staging repository until it reaches the target state'() {
+        setup:
+        polls << new Poll(status: 200, type: 'open', transitioning: true)
+        polls << new Poll(status: 200, type: 'open', transitioning: true, events: ['rulesEvaluate'])
+        polls << new Poll(status: 200, type: 'closed', transitioning: false, events: ['rulesEvaluate', 'rulesPassed'])
+
+        when:
+        int failedPolls = transition('closed')
+
+        then:
+        requested == ['/staging/bulk/close']
+        failedPolls == 0
+        pollCount == 3
+    }
+
+    def 'fails as soon as a rule fails rather than waiting for the transition to time out'() {
+        setup:
+        polls << new Poll(status: 200, type: 'open', transitioning: true)
+        polls << new Poll(status: 200, type: 'open', transitioning: true, events: ['rulesEvaluate', 'ruleFailed'])
+
+        when:
+        transition('closed')
+
+        then:
+        def e = thrown(GradleException)
+        e.message == "Staging repository ${REPOSITORY_ID} failed with " +
+                'close/ruleFailed {failureMessage=Missing signature}'
+        pollCount == 2
+    }
+
+    def 'reports a rule failing before the first poll'() {
+        setup:
+        // An earlier attempt to close the repository, which failed
+        eventsBefore.addAll(['rulesEvaluate', 'ruleFailed'])
+        polls << new Poll(status: 200, type: 'open', transitioning: true,
+                events: ['rulesEvaluate', 'ruleFailed', 'rulesEvaluate', 'ruleFailed'])
+
+        when:
+        transition('closed')
+
+        then:
+        thrown(GradleException)
+        pollCount == 1
+    }
+
+    def 'does not report events from before the transition was asked for'() {
+        setup:
+        eventsBefore.addAll(['rulesEvaluate', 'ruleFailed'])
+        polls << new Poll(status: 200, type: 'closed', transitioning: false,
+                events: ['rulesEvaluate', 'ruleFailed', 'rulesEvaluate', 'rulesPassed'])
+
+        when:
+        int failedPolls = transition('closed')
+
+        then:
+        failedPolls == 0
+        pollCount == 1
+    }
+
+    def 'takes the repository no longer existing as it having been released, as releasing drops it'() {
+        setup:
+        polls << new Poll(status: 200, type: 'closed', transitioning: true)
+        polls << new Poll(status: 404)
+
+        when:
+        int failedPolls = transition('released')
+
+        then:
+        requested == ['/staging/bulk/promote']
+        failedPolls == 0
+        pollCount == 2
+    }
+
+    def 'fails when the repository no longer exists while closing it'() {
+        setup:
+        polls << new Poll(status: 404)
+
+        when:
+        transition('closed')
+
+        then:
+        def e = thrown(GradleException)
+        e.message.startsWith("Staging repository ${REPOSITORY_ID} no longer exists")
+    }
+
+    def 'keeps polling through failed polls, counting them'() {
+        setup:
+        polls << new Poll(status: 500)
+        polls << new Poll(status: 200, type: 'closed', transitioning: false)
+
+        when:
+        int failedPolls = transition('closed')
+
+        then:
+        failedPolls == 1
+    }
+
+    private void respond(HttpExchange exchange) {
+        boolean activity = exchange.requestURI.path.endsWith('/activity')
+        if (!activity) {
+            pollCount++
+        }
+        // Asked for before the first poll, to know which events happened before the transition was asked for
+        Poll poll = pollCount == 0
+                ? new Poll(status: 200, events: eventsBefore)
+                : polls[Math.min(pollCount, polls.size()) - 1]
+
+        Object body = activity
+                ? [[name: 'close', events: poll.events.collect { event ->
+                        [name: event, properties: event == 'ruleFailed'
+                                ? [[name: 'failureMessage', value: 'Missing signature']]
+                                : []]
+                    }]]
+                : [repositoryId: REPOSITORY_ID, type: poll.type, transitioning: poll.transitioning]
+        byte[] bytes = JsonOutput.toJson(body).getBytes(StandardCharsets.UTF_8)
+
+        exchange.sendResponseHeaders(poll.status, bytes.length)
+        exchange.responseBody.withCloseable { it.write(bytes) }
+    }
+
+    private int transition(String targetType) {
+        return StagingRepositoryWatcher.transition(client, REPOSITORY_ID, 'group:root:1.0.0', targetType, logger())
+    }
+
+    private static Logger logger() {
+        return Logging.getLogger(StagingRepositoryWatcherSpec)
+    }
+
+    private static final class Poll {
+        int status
+        String type
+        boolean transitioning
+        List<String> events = []
+    }
+}